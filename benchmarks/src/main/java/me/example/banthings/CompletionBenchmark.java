@@ -0,0 +1,24 @@
+package me.example.banthings;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Material tab completion for /banitem and /limititem, one call per keystroke. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompletionBenchmark {
+
+    @Param({"", "d", "minecraft:d", "minecraft:diamond_", "minecraft:zzz"})
+    public String prefix;
+
+    @Benchmark
+    public List<String> materials() {
+        return Completions.materials(prefix);
+    }
+}
@@ -0,0 +1,121 @@
+package me.example.banthings;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-click enforcement path: a full pass, a slot-delta check, and the
+ * limit trimming steps on their own. The nested cases run the full pass over
+ * an inventory carrying shulker boxes and bundles, once reusing the contents
+ * recorded for them (a shift-click or pickup) and once reading every
+ * container again (a sweep). The holder case is a click in the open ender
+ * chest with limits: cursor and ender chest are re-read, then the full pass
+ * counts them and trims what is still over a limit off the cursor and out of
+ * the ender chest, as the plugin does for a player.
+ * <p>
+ * Run with {@code -prof gc} to see allocations per operation next to ns/op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EnforcementBenchmark {
+
+    @Param({"25", "75", "100"})
+    public int fillPercent;
+
+    @Param({"0", "10", "100"})
+    public int bannedCount;
+
+    @Param({"0", "5", "20"})
+    public int limitCount;
+
+    @Param({"false", "true"})
+    public boolean violations;
+
+    private InventoryFixture fixture;
+    private PlayerInventoryState state;
+    private long clickMask;
+
+    private InventoryFixture nestedFixture;
+    private PlayerInventoryState nestedState;
+    private final ContainerScanner scanner = new ContainerScanner();
+
+    private PlayerInventoryState holderState;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new InventoryFixture(fillPercent, bannedCount, limitCount, violations);
+        state = new PlayerInventoryState();
+        nestedFixture = new InventoryFixture(fillPercent, bannedCount, limitCount, violations).withContainers(6);
+        nestedState = new PlayerInventoryState();
+        holderState = new PlayerInventoryState();
+        // a typical click: the clicked slot plus a hotbar slot
+        clickMask = (1L << 12) | (1L << 3);
+    }
+
+    // enforcement mutates the inventory when there are violations
+    @Setup(Level.Invocation)
+    public void restore() {
+        if (!violations) return;
+        fixture.restore();
+        nestedFixture.restore();
+        // the containers changed behind the state's back, as if by a plugin
+        nestedState.containers.markStale(-1L);
+    }
+
+    @Benchmark
+    public EnforceResult enforcePlayerInventory() {
+        state.markFull();
+        return InventoryEnforcer.enforce(fixture.inventory, fixture.rules, state, null, null);
+    }
+
+    @Benchmark
+    public EnforceResult enforceSlots() {
+        if (state.needsFullScan(fixture.rules)) InventoryEnforcer.enforce(fixture.inventory, fixture.rules, state, null, null);
+        state.markSlots(clickMask);
+        return InventoryEnforcer.enforceSlots(fixture.inventory, fixture.rules, state, state.takeDirtySlots(), false);
+    }
+
+    @Benchmark
+    public EnforceResult enforceNested() {
+        nestedState.markSlots(PlayerInventoryState.FULL_PASS);
+        return InventoryEnforcer.enforce(nestedFixture.inventory, nestedFixture.rules, nestedState, scanner, null);
+    }
+
+    @Benchmark
+    public EnforceResult enforceNestedReread() {
+        nestedState.markFull();
+        return InventoryEnforcer.enforce(nestedFixture.inventory, nestedFixture.rules, nestedState, scanner, null);
+    }
+
+    @Benchmark
+    public EnforceResult enforceWithHolder() {
+        holderState.markOutside(PlayerInventoryState.FULL_PASS);
+        holderState.markSlots(PlayerInventoryState.FULL_PASS);
+        if (fixture.rules.hasLimits()) InventoryEnforcer.refreshOutside(fixture.holder, fixture.rules, holderState, null);
+        return InventoryEnforcer.enforce(fixture.inventory, fixture.rules, holderState, null, fixture.holder);
+    }
+
+    @Benchmark
+    public void applyLimits(Blackhole bh) {
+        InventoryEnforcer pass = new InventoryEnforcer(fixture.inventory, fixture.rules, null);
+        int[] counts = pass.removeBannedAndCount();
+        if (counts != null) pass.applyLimits(counts);
+        bh.consume(pass);
+    }
+
+    @Benchmark
+    public int removeExtraFromArray() {
+        InventoryEnforcer pass = new InventoryEnforcer(fixture.inventory, fixture.rules, null);
+        int left = 0;
+        for (int i = 0; i < fixture.limited.length; i++) {
+            left += pass.removeExtraFromArray(0, fixture.limited[i], fixture.limitedKeys[i], InventoryFixture.LIMIT);
+        }
+        return left;
+    }
+}
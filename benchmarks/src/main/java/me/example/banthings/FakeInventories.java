@@ -0,0 +1,239 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.bukkit.inventory.meta.BundleMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * In-memory PlayerInventory backed by a 41-slot array (storage, armor, offhand),
+ * laid out like PlayerInventory#setItem indexes, plus the shulker box and bundle
+ * metas {@link FakeItemStack} hands out, and the player, open chest and item
+ * entity that inventory events carry. Only the methods the plugin calls are
+ * implemented; anything else throws.
+ * <p>
+ * Like the real inventory, the content getters return fresh arrays holding the
+ * live stacks, so the copy cost shows up in the measurements.
+ */
+final class FakeInventories {
+
+    static final int SIZE = PlayerInventoryState.SLOT_COUNT;
+
+    // the world every simulated player stands in, for the audit log
+    private static final World WORLD = proxy(World.class, (proxy, method, args) -> switch (method.getName()) {
+        case "getName" -> "world";
+        default -> common(proxy, method, args, "FakeWorld");
+    });
+
+    private FakeInventories() {
+    }
+
+    static PlayerInventory playerInventory(ItemStack[] slots) {
+        if (slots.length != SIZE) throw new IllegalArgumentException("expected " + SIZE + " slots");
+        return (PlayerInventory) Proxy.newProxyInstance(
+                FakeInventories.class.getClassLoader(),
+                new Class<?>[]{PlayerInventory.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getSize" -> SIZE;
+                    case "getContents" -> Arrays.copyOf(slots, SIZE);
+                    case "getStorageContents" -> Arrays.copyOfRange(slots, 0, 36);
+                    case "getArmorContents" -> Arrays.copyOfRange(slots, 36, 40);
+                    case "getItemInOffHand" -> slots[40];
+                    case "setItemInOffHand" -> {
+                        slots[40] = (ItemStack) args[0];
+                        yield null;
+                    }
+                    case "getHeldItemSlot" -> 0;
+                    case "getItem" -> slots[slotIndex(method, args[0])];
+                    case "setItem" -> {
+                        slots[slotIndex(method, args[0])] = (ItemStack) args[1];
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "FakePlayerInventory" + Arrays.toString(slots);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * The online player holding {@code inventory}: the cursor is {@code cursor[0]}
+     * and the ender chest is backed by {@code ender}.
+     */
+    static Player holder(UUID id, PlayerInventory inventory, ItemStack[] cursor, ItemStack[] ender) {
+        Inventory enderChest = proxy(Inventory.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getSize" -> ender.length;
+            case "getType" -> InventoryType.ENDER_CHEST;
+            case "getContents" -> Arrays.copyOf(ender, ender.length);
+            case "getItem" -> ender[(Integer) args[0]];
+            case "setItem" -> {
+                ender[(Integer) args[0]] = (ItemStack) args[1];
+                yield null;
+            }
+            default -> common(proxy, method, args, "FakeEnderChest" + Arrays.toString(ender));
+        });
+        return proxy(Player.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> id;
+            case "getName" -> "player-" + id.getLeastSignificantBits();
+            case "isOnline" -> true;
+            case "getInventory" -> inventory;
+            case "getEnderChest" -> enderChest;
+            case "getItemOnCursor" -> cursor[0];
+            case "setItemOnCursor" -> {
+                cursor[0] = (ItemStack) args[0];
+                yield null;
+            }
+            case "getWorld" -> WORLD;
+            // messages go nowhere; the notifier only needs them accepted
+            case "sendMessage", "sendActionBar" -> null;
+            default -> common(proxy, method, args, "FakePlayer[" + id + "]");
+        });
+    }
+
+    /**
+     * The view of a chest, backed by {@code chest}, that {@code player} has
+     * open. Raw slots are numbered like the server's: the chest first, then
+     * storage slots 9..35, then the hotbar.
+     */
+    static InventoryView chestView(Player player, ItemStack[] chest) {
+        Inventory top = proxy(Inventory.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getSize" -> chest.length;
+            case "getType" -> InventoryType.CHEST;
+            case "getContents" -> Arrays.copyOf(chest, chest.length);
+            case "getItem" -> chest[(Integer) args[0]];
+            case "setItem" -> {
+                chest[(Integer) args[0]] = (ItemStack) args[1];
+                yield null;
+            }
+            default -> common(proxy, method, args, "FakeChest" + Arrays.toString(chest));
+        });
+        PlayerInventory bottom = player.getInventory();
+        return proxy(InventoryView.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getPlayer" -> player;
+            case "getTopInventory" -> top;
+            case "getBottomInventory" -> bottom;
+            case "getType" -> InventoryType.CHEST;
+            case "countSlots" -> chest.length + 36;
+            case "convertSlot" -> convertSlot((Integer) args[0], chest.length);
+            case "getItem" -> {
+                int raw = (Integer) args[0];
+                yield raw < chest.length ? chest[raw] : bottom.getItem(convertSlot(raw, chest.length));
+            }
+            case "getCursor" -> player.getItemOnCursor();
+            default -> common(proxy, method, args, "FakeChestView");
+        });
+    }
+
+    /** Raw slot of a chest view for a storage slot (0..35) of the player inventory. */
+    static int rawSlot(int slot, int topSize) {
+        return slot < 9 ? topSize + 27 + slot : topSize + slot - 9;
+    }
+
+    private static int convertSlot(int raw, int topSize) {
+        if (raw < topSize) return raw;
+        int slot = raw - topSize;
+        return slot >= 27 ? slot - 27 : slot + 9;
+    }
+
+    /** A dropped item entity holding {@code stack}. */
+    static Item item(ItemStack stack) {
+        return proxy(Item.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getItemStack" -> stack;
+            default -> common(proxy, method, args, "FakeItem");
+        });
+    }
+
+    // ----------------------------
+    // Containers
+    // ----------------------------
+
+    /** BundleMeta for a bundle, otherwise a BlockStateMeta holding a shulker box; both own {@code items}. */
+    static ItemMeta containerMeta(Material type, ItemStack[] items) {
+        ItemStack[][] held = {items};
+        if (type == Material.BUNDLE) {
+            return proxy(BundleMeta.class, (proxy, method, args) -> switch (method.getName()) {
+                case "hasItems" -> Arrays.stream(held[0]).anyMatch(it -> it != null);
+                case "getItems" -> {
+                    List<ItemStack> list = new ArrayList<>();
+                    for (ItemStack it : held[0]) if (it != null) list.add(it);
+                    yield list;
+                }
+                case "setItems" -> {
+                    held[0] = ((List<?>) args[0]).toArray(new ItemStack[0]);
+                    yield null;
+                }
+                default -> common(proxy, method, args, "FakeBundleMeta");
+            });
+        }
+        return proxy(BlockStateMeta.class, (proxy, method, args) -> switch (method.getName()) {
+            case "hasBlockState" -> true;
+            case "getBlockState" -> shulkerBox(held[0]);
+            case "setBlockState" -> {
+                held[0] = ((ShulkerBox) args[0]).getInventory().getContents();
+                yield null;
+            }
+            default -> common(proxy, method, args, "FakeBlockStateMeta");
+        });
+    }
+
+    /** The items a meta from {@link #containerMeta} holds now. */
+    static ItemStack[] itemsOf(ItemMeta meta) {
+        if (meta instanceof BundleMeta bm) return bm.getItems().toArray(new ItemStack[0]);
+        return ((ShulkerBox) ((BlockStateMeta) meta).getBlockState()).getInventory().getContents();
+    }
+
+    private static ShulkerBox shulkerBox(ItemStack[] items) {
+        ItemStack[] slots = Arrays.copyOf(items, items.length);
+        Inventory inv = proxy(Inventory.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getSize" -> slots.length;
+            case "getContents" -> Arrays.copyOf(slots, slots.length);
+            case "setContents" -> {
+                ItemStack[] in = (ItemStack[]) args[0];
+                Arrays.fill(slots, null);
+                System.arraycopy(in, 0, slots, 0, Math.min(in.length, slots.length));
+                yield null;
+            }
+            default -> common(proxy, method, args, "FakeShulkerInventory");
+        });
+        return proxy(ShulkerBox.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getInventory", "getSnapshotInventory" -> inv;
+            default -> common(proxy, method, args, "FakeShulkerBox");
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeInventories.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object common(Object proxy, Method method, Object[] args, String name) {
+        return switch (method.getName()) {
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> name;
+            default -> throw new UnsupportedOperationException(method.getName());
+        };
+    }
+
+    private static int slotIndex(Method method, Object slot) {
+        // PlayerInventory also has EquipmentSlot overloads; only the index ones are used
+        if (slot instanceof Integer i) return i;
+        throw new UnsupportedOperationException(method.getName() + "(" + slot + ")");
+    }
+}
@@ -0,0 +1,76 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * ItemStack that only stores type, amount and, for shulker boxes and bundles,
+ * the items inside, so benchmarks need no running server.
+ * <p>
+ * Like the real stack, {@link #getItemMeta()} hands out a copy: the contents
+ * are copied on every read and only change through {@link #setItemMeta}.
+ */
+final class FakeItemStack extends ItemStack {
+
+    private final Material type;
+    private int amount;
+    // items inside a container, null for any other item
+    private ItemStack[] contents;
+
+    FakeItemStack(Material type, int amount) {
+        this(type, amount, null);
+    }
+
+    FakeItemStack(Material type, int amount, ItemStack[] contents) {
+        this.type = type;
+        this.amount = amount;
+        this.contents = contents;
+    }
+
+    @Override
+    public Material getType() {
+        return type;
+    }
+
+    @Override
+    public int getAmount() {
+        return amount;
+    }
+
+    @Override
+    public void setAmount(int amount) {
+        this.amount = amount;
+    }
+
+    @Override
+    public boolean hasItemMeta() {
+        return contents != null;
+    }
+
+    @Override
+    public ItemMeta getItemMeta() {
+        return contents == null ? null : FakeInventories.containerMeta(type, copy(contents));
+    }
+
+    @Override
+    public boolean setItemMeta(ItemMeta meta) {
+        contents = FakeInventories.itemsOf(meta);
+        return true;
+    }
+
+    @Override
+    public FakeItemStack clone() {
+        return new FakeItemStack(type, amount, contents == null ? null : copy(contents));
+    }
+
+    void setContents(ItemStack[] contents) {
+        this.contents = contents;
+    }
+
+    static ItemStack[] copy(ItemStack[] items) {
+        ItemStack[] out = new ItemStack[items.length];
+        for (int i = 0; i < items.length; i++) out[i] = items[i] == null ? null : items[i].clone();
+        return out;
+    }
+}
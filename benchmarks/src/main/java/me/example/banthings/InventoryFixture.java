@@ -0,0 +1,180 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.*;
+
+/**
+ * A reproducible player inventory plus rule table for the enforcement benchmarks.
+ * <p>
+ * Without violations the inventory holds no banned items and every limited
+ * material stays under its limit, which is what almost every click looks like.
+ * With violations a tenth of the filled slots are banned and limited stacks are
+ * well over the limit. {@link #restore()} puts the original stacks and amounts
+ * back, so it can run before every invocation; only container contents are
+ * copied to do that.
+ * <p>
+ * {@link #withContainers} swaps some stacks for shulker boxes and bundles, filled
+ * the same way as the inventory. {@link #holder} is the player around the
+ * inventory, with a stack on the cursor and a filled ender chest.
+ */
+final class InventoryFixture {
+
+    static final int LIMIT = 16;
+
+    final ItemRuleTable rules;
+    final ItemStack[] slots = new ItemStack[FakeInventories.SIZE];
+    final PlayerInventory inventory = FakeInventories.playerInventory(slots);
+    final ItemStack[] cursor = new ItemStack[1];
+    final ItemStack[] ender = new ItemStack[27];
+    final Player holder;
+    final Material[] banned;
+    final Material[] limited;
+    final String[] limitedKeys;
+    final Material[] neutral;
+
+    private final ItemStack[] original = new ItemStack[FakeInventories.SIZE];
+    private final int[] originalAmounts = new int[FakeInventories.SIZE];
+    private final ItemStack[][] originalContents = new ItemStack[FakeInventories.SIZE][];
+    private final ItemStack[] originalEnder = new ItemStack[27];
+    private final int[] originalEnderAmounts = new int[27];
+    private ItemStack originalCursor;
+    private int originalCursorAmount;
+    private final boolean violations;
+    private final Random layout;
+
+    InventoryFixture(int fillPercent, int bannedCount, int limitCount, boolean violations) {
+        this(fillPercent, bannedCount, limitCount, violations, 42);
+    }
+
+    /**
+     * The rules depend only on the counts; {@code layoutSeed} varies which
+     * stacks go where, so many fixtures can share one rule table.
+     */
+    InventoryFixture(int fillPercent, int bannedCount, int limitCount, boolean violations, long layoutSeed) {
+        Random rnd = new Random(42);
+
+        List<Material> pool = new ArrayList<>();
+        for (Material m : Material.values()) {
+            if (m.isLegacy() || m.isAir()) continue;
+            pool.add(m);
+        }
+        Collections.shuffle(pool, rnd);
+        rnd = new Random(layoutSeed);
+        this.violations = violations;
+        this.layout = rnd;
+        this.holder = FakeInventories.holder(new UUID(0L, layoutSeed), inventory, cursor, ender);
+
+        List<Material> banned = pool.subList(0, bannedCount);
+        List<Material> limitedList = pool.subList(bannedCount, bannedCount + limitCount);
+        List<Material> neutral = pool.subList(bannedCount + limitCount, pool.size());
+        this.banned = banned.toArray(new Material[0]);
+        this.neutral = neutral.toArray(new Material[0]);
+
+        Set<String> bannedKeys = new HashSet<>();
+        for (Material m : banned) bannedKeys.add(BanThingsPlugin.keyOf(m));
+        Map<String, Integer> limitKeys = new HashMap<>();
+        for (Material m : limitedList) limitKeys.put(BanThingsPlugin.keyOf(m), LIMIT);
+        rules = ItemRuleTable.compile(bannedKeys, limitKeys);
+
+        limited = limitedList.toArray(new Material[0]);
+        limitedKeys = new String[limited.length];
+        for (int i = 0; i < limited.length; i++) limitedKeys[i] = BanThingsPlugin.keyOf(limited[i]);
+
+        int nextLimited = 0;
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (rnd.nextInt(100) >= fillPercent) continue;
+
+            Material type;
+            int amount;
+            int roll = rnd.nextInt(10);
+            if (violations && roll == 0 && !banned.isEmpty()) {
+                type = banned.get(rnd.nextInt(banned.size()));
+                amount = 1 + rnd.nextInt(64);
+            } else if (roll <= 2 && nextLimited < limited.length) {
+                // without violations each limited material gets one stack under the limit
+                type = limited[violations ? rnd.nextInt(limited.length) : nextLimited++];
+                amount = violations ? 64 : LIMIT / 2;
+            } else {
+                type = neutral.get(rnd.nextInt(neutral.size()));
+                amount = 1 + rnd.nextInt(64);
+            }
+            original[slot] = new FakeItemStack(type, amount);
+            originalAmounts[slot] = amount;
+        }
+        fillOutside(fillPercent);
+        restore();
+    }
+
+    /**
+     * Ender chest filled like the inventory and a neutral stack on the cursor.
+     * Without violations a limited material gets a quarter of its limit in the
+     * ender chest, so the totals stay under it; with violations a full stack.
+     */
+    private void fillOutside(int fillPercent) {
+        for (int slot = 0; slot < ender.length; slot++) {
+            if (layout.nextInt(100) >= fillPercent) continue;
+            Material type = neutral[layout.nextInt(neutral.length)];
+            originalEnder[slot] = new FakeItemStack(type, 1 + layout.nextInt(64));
+        }
+        if (limited.length > 0) {
+            originalEnder[ender.length - 1] = new FakeItemStack(limited[0], violations ? 64 : LIMIT / 4);
+        }
+        for (int slot = 0; slot < ender.length; slot++) {
+            if (originalEnder[slot] != null) originalEnderAmounts[slot] = originalEnder[slot].getAmount();
+        }
+        originalCursor = new FakeItemStack(neutral[layout.nextInt(neutral.length)], 1 + layout.nextInt(64));
+        originalCursorAmount = originalCursor.getAmount();
+    }
+
+    /**
+     * Puts {@code count} containers into storage slots spread over the inventory,
+     * alternating shulker boxes (27 slots, three quarters filled) and bundles
+     * (four small stacks). Without violations they hold only neutral items; with
+     * violations a tenth of the stacks inside are banned and a limited stack
+     * goes into each.
+     */
+    InventoryFixture withContainers(int count) {
+        for (int k = 0; k < count; k++) {
+            int slot = (k * 36 / Math.max(1, count) + 5) % 36;
+            boolean bundle = k % 2 == 1;
+            ItemStack[] inside = new ItemStack[bundle ? 4 : 27];
+            for (int i = 0; i < inside.length; i++) {
+                if (!bundle && layout.nextInt(4) == 0) continue;
+                int amount = bundle ? 1 + layout.nextInt(8) : 1 + layout.nextInt(64);
+                Material type = violations && layout.nextInt(10) == 0 && banned.length > 0
+                        ? banned[layout.nextInt(banned.length)]
+                        : neutral[layout.nextInt(neutral.length)];
+                inside[i] = new FakeItemStack(type, amount);
+            }
+            if (violations && limited.length > 0) {
+                inside[0] = new FakeItemStack(limited[layout.nextInt(limited.length)], bundle ? 8 : 64);
+            }
+            Material type = bundle ? Material.BUNDLE : Material.SHULKER_BOX;
+            original[slot] = new FakeItemStack(type, 1, FakeItemStack.copy(inside));
+            originalAmounts[slot] = 1;
+            originalContents[slot] = inside;
+        }
+        restore();
+        return this;
+    }
+
+    void restore() {
+        for (int i = 0; i < slots.length; i++) {
+            ItemStack it = original[i];
+            if (it != null) it.setAmount(originalAmounts[i]);
+            if (originalContents[i] != null) ((FakeItemStack) it).setContents(FakeItemStack.copy(originalContents[i]));
+            slots[i] = it;
+        }
+        for (int i = 0; i < ender.length; i++) {
+            ItemStack it = originalEnder[i];
+            if (it != null) it.setAmount(originalEnderAmounts[i]);
+            ender[i] = it;
+        }
+        originalCursor.setAmount(originalCursorAmount);
+        cursor[0] = originalCursor;
+    }
+}
@@ -0,0 +1,54 @@
+package me.example.banthings;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notification formatting: the precompiled template against the old
+ * fmt-then-deserialize path it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageBenchmark {
+
+    private static final String RAW = "&6[BanThings] &fLimit exceeded: &e%item% &7(limit %limit%). Removed: x%amount%";
+
+    private final LegacyComponentSerializer legacy = LegacyComponentSerializer.legacyAmpersand();
+    private MessageTemplate template;
+
+    @Setup
+    public void setUp() {
+        template = MessageTemplate.compile(legacy, RAW, "item", "amount", "limit");
+    }
+
+    @Benchmark
+    public Component renderTemplate() {
+        return template.render("minecraft:diamond", "48", "16");
+    }
+
+    @Benchmark
+    public Component fmtAndDeserialize() {
+        return legacy.deserialize(fmt(RAW, Map.of(
+                "item", "minecraft:diamond",
+                "amount", String.valueOf(48),
+                "limit", String.valueOf(16)
+        )));
+    }
+
+    // the formatting BanThingsPlugin used before message templates
+    private static String fmt(String template, Map<String, String> vars) {
+        String out = template;
+        for (Map.Entry<String, String> e : vars.entrySet()) {
+            out = out.replace("%" + e.getKey() + "%", e.getValue());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,156 @@
+package me.example.banthings;
+
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scheduling on a tick loop the caller drives with {@link #tick()}, all on the
+ * calling thread, for either server type.
+ * <p>
+ * Timers fire on their ticks. Tasks handed to the scheduler run on the next
+ * tick, the way the Bukkit and Folia schedulers run them. On Folia a check
+ * handed to a player's region from a global timer is queued the same way,
+ * while on Paper it runs inline since the main thread owns every player.
+ * Every queued task is counted, since on Folia each one is a scheduler entry
+ * the server has to process.
+ */
+final class FakeScheduling extends Scheduling {
+
+    private final boolean folia;
+    private final List<Timer> timers = new ArrayList<>();
+    private ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private ArrayDeque<Runnable> running = new ArrayDeque<>();
+    private long now;
+    private long queued;
+    private int peakQueued;
+
+    private static final class Timer implements Task {
+        final Runnable task;
+        // 0 runs the task once
+        final long period;
+        long due;
+        boolean cancelled;
+
+        Timer(Runnable task, long due, long period) {
+            this.task = task;
+            this.due = due;
+            this.period = period;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    FakeScheduling(boolean folia) {
+        super(null);
+        this.folia = folia;
+    }
+
+    @Override
+    boolean folia() {
+        return folia;
+    }
+
+    /**
+     * Runs one tick: the tasks queued during the previous one, then the timers
+     * that are due. Tasks queued now wait for the next tick.
+     */
+    void tick() {
+        now++;
+        ArrayDeque<Runnable> batch = queue;
+        queue = running;
+        running = batch;
+        peakQueued = Math.max(peakQueued, batch.size());
+        Runnable r;
+        while ((r = batch.poll()) != null) r.run();
+
+        // copy first: a timer may start or cancel others
+        for (Timer t : timers.toArray(new Timer[0])) {
+            if (t.cancelled || t.due > now) continue;
+            t.task.run();
+            if (t.period <= 0) t.cancel();
+            t.due = now + t.period;
+        }
+        timers.removeIf(t -> t.cancelled);
+    }
+
+    /** Tasks queued in total since the last {@link #resetCounts()}. */
+    long queued() {
+        return queued;
+    }
+
+    /** Most tasks any one tick had to run since the last {@link #resetCounts()}. */
+    int peakQueued() {
+        return peakQueued;
+    }
+
+    /** Tasks waiting for the next tick. */
+    int pending() {
+        return queue.size();
+    }
+
+    void resetCounts() {
+        queued = 0;
+        peakQueued = 0;
+    }
+
+    private void enqueue(Runnable task) {
+        queued++;
+        queue.add(task);
+    }
+
+    // ----------------------------
+    // Scheduling
+    // ----------------------------
+
+    @Override
+    Task runTimer(Runnable task, long delayTicks, long periodTicks) {
+        return schedule(task, delayTicks, Math.max(1L, periodTicks));
+    }
+
+    private Timer schedule(Runnable task, long delayTicks, long periodTicks) {
+        Timer t = new Timer(task, now + Math.max(1L, delayTicks), periodTicks);
+        timers.add(t);
+        return t;
+    }
+
+    @Override
+    void runAsync(Runnable task) {
+        task.run();
+    }
+
+    @Override
+    void runGlobal(Runnable task) {
+        enqueue(task);
+    }
+
+    @Override
+    void runFor(Player p, Runnable task) {
+        enqueue(task);
+    }
+
+    @Override
+    void runForLater(Player p, Runnable task, long delayTicks) {
+        schedule(task, delayTicks, 0L);
+    }
+
+    @Override
+    void executeFor(Player p, Runnable task, Runnable retired) {
+        if (!folia) {
+            task.run();
+        } else {
+            enqueue(() -> {
+                if (p.isOnline()) {
+                    task.run();
+                } else {
+                    retired.run();
+                }
+            });
+        }
+    }
+}
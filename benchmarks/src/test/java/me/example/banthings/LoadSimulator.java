@@ -0,0 +1,436 @@
+package me.example.banthings;
+
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Replays scripted event storms through the plugin's own enforcement pipeline
+ * in simulated 50 ms ticks, without a server.
+ * <p>
+ * Click and pickup events are built the way the server builds them and handed
+ * to the real {@link InventoryListener}, which marks slots on the
+ * {@link Enforcement} the plugin uses; the inventories change after the
+ * handler returns, as they do on a server. Removals go to a {@link Notifier}
+ * loaded from the bundled config.yml and to an {@link AuditLog} in a temporary
+ * directory. Scheduling goes through a {@link FakeScheduling} tick loop, either
+ * as Paper (one drain timer) or as Folia (a task per dirty player and per
+ * re-checked player). The ban is two /banitem commands in one tick, issued
+ * through {@link RuleUpdates} like the commands do, so the second one restarts
+ * the re-check the first one started.
+ * <p>
+ * Per tick, the simulator measures the time spent in handlers, tasks and timers,
+ * the bytes they allocate, and the tasks queued. Building events and applying
+ * their effect to the inventories happens outside the measured window. On
+ * Folia every region runs on the one simulating thread, so the tick cost is
+ * the sum over all regions. Usage:
+ * <pre>
+ * mvn -f benchmarks/pom.xml test-compile exec:java \
+ *     -Dexec.args="shift-click|pickup-after-ban [players] [events-per-second] [seconds] [paper|folia]"
+ * </pre>
+ */
+public final class LoadSimulator {
+
+    static final long TICK_NANOS = 50_000_000L;
+    static final int WARMUP_SECONDS = 5;
+    static final long REENFORCE_BUDGET_NANOS = 2_000_000L;
+    // ticks to let queued work finish after the run, before counting what is left
+    static final int SETTLE_TICKS = 1200;
+    private static final int CHEST_SIZE = 27;
+
+    /**
+     * What the measured ticks did. {@code reenforced} is how many players may
+     * have held a banned item, {@code restarted} whether the second ban
+     * restarted the re-check, and {@code reenforceTicks} how long the re-check
+     * took, -1 without a ban or if it never finished. {@code bannedLeft} counts
+     * banned stacks players still hold once queued work has settled,
+     * containers included.
+     */
+    record Result(long[] tickNanos, long events, long tasks, int peakTasks, long allocated,
+                  int reenforced, boolean restarted, int reenforceTicks, int bannedLeft, String stats) {
+    }
+
+    private static final class SimPlayer {
+        final InventoryFixture fixture;
+        final Player player;
+        final ItemStack[] chest = new ItemStack[CHEST_SIZE];
+        final InventoryView view;
+        double credit;
+        // next shift-click moves a stack into the chest rather than out of it
+        boolean outward = true;
+
+        SimPlayer(InventoryFixture fixture) {
+            this.fixture = fixture;
+            this.player = fixture.holder;
+            this.view = FakeInventories.chestView(player, chest);
+        }
+    }
+
+    private final Random rnd = new Random(7);
+    private final List<SimPlayer> players = new ArrayList<>();
+    private final Map<UUID, Player> online = new LinkedHashMap<>();
+    private final Metrics metrics = new Metrics();
+    private final FakeScheduling scheduling;
+    private final Notifier notifier;
+    private final Path auditDir;
+    private final AuditLog audit;
+    private final Enforcement enforcement;
+    private final InventoryListener listener;
+    private final AtomicReference<RuleSnapshot> rules;
+    private final RuleUpdates ruleUpdates;
+    private final Material[] banned;
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private int tick;
+    private int banTick = -1;
+    private int reenforceDone = -1;
+    private int reenforced;
+    private boolean restarted;
+
+    // spent in event handlers since the last tick
+    private long handlerNanos;
+    private long handlerAllocated;
+
+    private LoadSimulator(int playerCount, boolean violations, boolean bannedFromStart, boolean folia) {
+        for (int i = 0; i < playerCount; i++) {
+            SimPlayer p = new SimPlayer(new InventoryFixture(75, 10, 5, violations, i).withContainers(4));
+            // spread the players' events over the ticks instead of firing them all together
+            p.credit = rnd.nextDouble();
+            players.add(p);
+            online.put(p.player.getUniqueId(), p.player);
+        }
+        InventoryFixture first = players.get(0).fixture;
+        banned = first.banned;
+        // limits are in force from the start, so the listener is registered
+        RuleSnapshot initial = RuleSnapshot.EMPTY.withLimits(Arrays.asList(first.limitedKeys), InventoryFixture.LIMIT);
+        if (bannedFromStart) initial = initial.withBannedItems(keysOf(Arrays.asList(banned)));
+        rules = new AtomicReference<>(initial);
+
+        Logger logger = Logger.getLogger("LoadSimulator");
+        scheduling = new FakeScheduling(folia);
+        notifier = new Notifier(scheduling);
+        notifier.load(bundledConfig(), LegacyComponentSerializer.legacyAmpersand());
+        try {
+            auditDir = Files.createTempDirectory("banthings-sim");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        audit = new AuditLog(auditDir, logger, 10_000, 1024L * 1024L, 2);
+        // what BanThingsPlugin does with every removal
+        enforcement = new Enforcement(scheduling, () -> rules.get().items(), metrics, online::get, (p, r) -> {
+            notifier.enforcement(p, r);
+            audit.removals(p, r);
+        });
+        enforcement.setContainerScanner(new ContainerScanner());
+        enforcement.start();
+        listener = new InventoryListener(enforcement, metrics);
+        // simulated players carry no potion effects
+        ruleUpdates = new RuleUpdates(rules, () -> { }, scheduling, enforcement, online::get, online::values,
+                p -> false, logger);
+        ruleUpdates.configure(REENFORCE_BUDGET_NANOS, 0L);
+    }
+
+    private static YamlConfiguration bundledConfig() {
+        InputStream in = LoadSimulator.class.getResourceAsStream("/config.yml");
+        if (in == null) throw new IllegalStateException("config.yml of the plugin is not on the classpath");
+        return YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    private static List<String> keysOf(Collection<Material> ms) {
+        List<String> keys = new ArrayList<>();
+        for (Material m : ms) keys.add(BanThingsPlugin.keyOf(m));
+        return keys;
+    }
+
+    public static void main(String[] args) {
+        String scenario = args.length > 0 ? args[0] : "shift-click";
+        int playerCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        double perSecond = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+        boolean folia = args.length > 4 && args[4].equalsIgnoreCase("folia");
+
+        System.out.printf("%s on %s: %d players, %.1f events/s each, %d s%n",
+                scenario, folia ? "Folia" : "Paper", playerCount, perSecond, seconds);
+        switch (scenario) {
+            case "shift-click" -> report(shiftClicks(playerCount, perSecond, seconds, folia));
+            case "pickup-after-ban" -> report(pickupsAfterBan(playerCount, perSecond, seconds, folia));
+            default -> {
+                System.err.println("Unknown scenario " + scenario + ", expected shift-click or pickup-after-ban");
+                System.exit(2);
+            }
+        }
+    }
+
+    // ----------------------------
+    // Scenarios
+    // ----------------------------
+
+    /**
+     * Every player shift-clicks stacks between their inventory and an open
+     * chest, one way and then the other. Moving a shulker box or bundle
+     * re-reads every container; other stacks only the slot they left.
+     */
+    static Result shiftClicks(int playerCount, double clicksPerSecond, int seconds, boolean folia) {
+        return new LoadSimulator(playerCount, false, true, folia).run(seconds, clicksPerSecond, false, false);
+    }
+
+    /**
+     * Players carry items that are about to be banned. After the warm-up the ban
+     * lands, the players who may hold them are re-checked under the budget, and
+     * pickups keep bringing in stacks, a tenth of them banned.
+     */
+    static Result pickupsAfterBan(int playerCount, double pickupsPerSecond, int seconds, boolean folia) {
+        return new LoadSimulator(playerCount, true, false, folia).run(seconds, pickupsPerSecond, true, true);
+    }
+
+    // ----------------------------
+    // Tick loop
+    // ----------------------------
+
+    private Result run(int seconds, double perSecond, boolean pickups, boolean ban) {
+        int warmupTicks = WARMUP_SECONDS * 20;
+        long[] tickNanos = new long[seconds * 20];
+        long allocated = 0;
+        long events = 0;
+
+        for (tick = -warmupTicks; tick < tickNanos.length; tick++) {
+            handlerNanos = 0;
+            handlerAllocated = 0;
+            long fired = generate(perSecond / 20, pickups);
+
+            long alloc = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            if (ban && tick == 0) ban();
+            scheduling.tick();
+            long spent = System.nanoTime() - start + handlerNanos;
+            alloc = threads.getCurrentThreadAllocatedBytes() - alloc + handlerAllocated;
+
+            if (tick == -1) {
+                // warm-up done: keep only what the measured ticks do
+                metrics.reset();
+                scheduling.resetCounts();
+            }
+            if (tick >= 0) {
+                tickNanos[tick] = spent;
+                allocated += alloc;
+                events += fired;
+            }
+        }
+        long tasks = scheduling.queued();
+        int peakTasks = scheduling.peakQueued();
+        String stats = metrics.summary();
+
+        for (int i = 0; i < SETTLE_TICKS && (scheduling.pending() > 0 || (ban && reenforceDone < 0)); i++) {
+            tick++;
+            scheduling.tick();
+        }
+        // one more for what the Paper drain timer still holds
+        scheduling.tick();
+        Result r = new Result(tickNanos, events, tasks, peakTasks, allocated, reenforced, restarted,
+                reenforceDone < 0 ? -1 : reenforceDone - banTick, bannedLeft(), stats);
+        close();
+        return r;
+    }
+
+    /**
+     * Two /banitem commands in one tick, each half of the banned materials,
+     * through the calls the command handler makes once the arguments are
+     * parsed. The first job never gets to run: the second command restarts it
+     * with both target lists, and only the second job reports completion.
+     */
+    private void ban() {
+        banTick = tick;
+        List<Material> all = Arrays.asList(banned);
+        reenforced = enforcement.playersHolding(online.values(), all).size();
+        List<Material> firstHalf = all.subList(0, all.size() / 2);
+        List<Material> secondHalf = all.subList(all.size() / 2, all.size());
+
+        ruleUpdates.update(r -> r.withBannedItems(keysOf(firstHalf)));
+        ruleUpdates.reenforceHolding(raw -> restarted = true, firstHalf);
+        ruleUpdates.update(r -> r.withBannedItems(keysOf(secondHalf)));
+        ruleUpdates.reenforceHolding(raw -> reenforceDone = tick, secondHalf);
+    }
+
+    private void close() {
+        audit.close();
+        try (Stream<Path> files = Files.walk(auditDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Fires this tick's events; returns how many. */
+    private long generate(double perTick, boolean pickups) {
+        long fired = 0;
+        for (SimPlayer p : players) {
+            p.credit += perTick;
+            while (p.credit >= 1) {
+                p.credit -= 1;
+                if (pickups ? pickUp(p) : shiftClick(p)) fired++;
+            }
+        }
+        return fired;
+    }
+
+    private boolean shiftClick(SimPlayer p) {
+        ItemStack[] slots = p.fixture.slots;
+        int from = randomFilled(slots, 36);
+        int back = randomFilled(p.chest, CHEST_SIZE);
+        boolean out = from >= 0 && (p.outward || back < 0);
+        if (!out && back < 0) return false;
+        p.outward = !out;
+
+        int raw = out ? FakeInventories.rawSlot(from, CHEST_SIZE) : back;
+        InventoryType.SlotType type = out && from < 9 ? InventoryType.SlotType.QUICKBAR : InventoryType.SlotType.CONTAINER;
+        fire(new InventoryClickEvent(p.view, type, raw, ClickType.SHIFT_LEFT, InventoryAction.MOVE_TO_OTHER_INVENTORY));
+
+        // the server moves the stack after the handlers ran; a full side keeps it
+        if (out) {
+            int to = firstEmpty(p.chest, CHEST_SIZE);
+            if (to < 0) return true;
+            p.chest[to] = slots[from];
+            slots[from] = null;
+        } else {
+            int to = firstEmpty(slots, 36);
+            if (to < 0) return true;
+            slots[to] = p.chest[back];
+            p.chest[back] = null;
+        }
+        return true;
+    }
+
+    private boolean pickUp(SimPlayer p) {
+        InventoryFixture f = p.fixture;
+        Material type = (rnd.nextInt(10) == 0 && f.banned.length > 0)
+                ? f.banned[rnd.nextInt(f.banned.length)]
+                : f.neutral[rnd.nextInt(f.neutral.length)];
+        ItemStack stack = new FakeItemStack(type, 1 + rnd.nextInt(64));
+        int slot = firstEmpty(f.slots, 36);
+        if (slot < 0) {
+            // full: the player drops a stack first, which no handler here listens to
+            slot = rnd.nextInt(36);
+            f.slots[slot] = null;
+        }
+        fire(new EntityPickupItemEvent(p.player, FakeInventories.item(stack), 0));
+        f.slots[slot] = stack;
+        return true;
+    }
+
+    private void fire(InventoryClickEvent e) {
+        long alloc = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        listener.onClick(e);
+        handlerNanos += System.nanoTime() - start;
+        handlerAllocated += threads.getCurrentThreadAllocatedBytes() - alloc;
+    }
+
+    private void fire(EntityPickupItemEvent e) {
+        long alloc = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        listener.onPickup(e);
+        handlerNanos += System.nanoTime() - start;
+        handlerAllocated += threads.getCurrentThreadAllocatedBytes() - alloc;
+    }
+
+    private int randomFilled(ItemStack[] items, int size) {
+        int start = rnd.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            if (items[slot] != null) return slot;
+        }
+        return -1;
+    }
+
+    private static int firstEmpty(ItemStack[] items, int size) {
+        for (int i = 0; i < size; i++) {
+            if (items[i] == null) return i;
+        }
+        return -1;
+    }
+
+    /** Banned stacks anywhere a player holds items: inventory, cursor, ender chest, and inside containers. */
+    private int bannedLeft() {
+        int n = 0;
+        for (SimPlayer p : players) {
+            InventoryFixture f = p.fixture;
+            n += countBanned(f.slots) + countBanned(f.cursor) + countBanned(f.ender);
+        }
+        return n;
+    }
+
+    private int countBanned(ItemStack[] items) {
+        int n = 0;
+        for (ItemStack it : items) {
+            if (it == null) continue;
+            if (rules.get().items().isBanned(it.getType())) n++;
+            ItemMeta meta = it.getItemMeta();
+            if (meta != null) n += countBanned(FakeInventories.itemsOf(meta));
+        }
+        return n;
+    }
+
+    // ----------------------------
+    // Output
+    // ----------------------------
+
+    private static void report(Result r) {
+        long[] tickNanos = r.tickNanos();
+        long[] sorted = tickNanos.clone();
+        Arrays.sort(sorted);
+        long total = 0;
+        int overOnePercent = 0;
+        for (long n : tickNanos) {
+            total += n;
+            if (n > TICK_NANOS / 100) overOnePercent++;
+        }
+
+        System.out.printf("ticks: %d, events: %d%n", tickNanos.length, r.events());
+        System.out.printf("tick cost: avg %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                ms(total / Math.max(1, tickNanos.length)), ms(at(sorted, 0.50)), ms(at(sorted, 0.99)),
+                ms(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+        System.out.printf("share of the 50 ms tick: avg %.2f%%, ticks over 1%%: %d%n",
+                100.0 * total / Math.max(1, tickNanos.length) / TICK_NANOS, overOnePercent);
+        System.out.printf("tasks queued: %d (%.2f per event), most in one tick: %d%n",
+                r.tasks(), r.events() == 0 ? 0.0 : (double) r.tasks() / r.events(), r.peakTasks());
+        if (r.reenforced() > 0 || r.reenforceTicks() >= 0) {
+            System.out.printf("re-check after the ban: %d players in %d ticks%s, banned stacks left: %d%n",
+                    r.reenforced(), r.reenforceTicks(), r.restarted() ? " (restarted once)" : "", r.bannedLeft());
+        }
+        System.out.printf("allocated: %d KB total, %d B per event%n",
+                r.allocated() / 1024, r.events() == 0 ? 0 : r.allocated() / r.events());
+        System.out.println(r.stats());
+    }
+
+    private static long at(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (q * sorted.length))];
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,55 @@
+package me.example.banthings;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Small runs of the load simulator on both server types: the real listener,
+ * enforcement and rule updates must leave no banned item behind, the second
+ * ban must restart the re-check, and only Folia may queue a task per event.
+ */
+class LoadSimulatorTest {
+
+    private static final int PLAYERS = 8;
+    private static final int SECONDS = 2;
+
+    @Test
+    void banOnPaperRemovesEverythingWithoutTasks() {
+        LoadSimulator.Result r = LoadSimulator.pickupsAfterBan(PLAYERS, 5, SECONDS, false);
+        assertTrue(r.events() > 0);
+        assertTrue(r.reenforced() > 0);
+        assertTrue(r.restarted(), "second ban did not restart the re-check");
+        assertTrue(r.reenforceTicks() >= 0, "re-check never finished");
+        assertEquals(0, r.bannedLeft());
+        assertEquals(0, r.tasks(), "Paper drains dirty players from one timer");
+    }
+
+    @Test
+    void banOnFoliaRemovesEverything() {
+        LoadSimulator.Result r = LoadSimulator.pickupsAfterBan(PLAYERS, 5, SECONDS, true);
+        assertTrue(r.restarted(), "second ban did not restart the re-check");
+        assertTrue(r.reenforceTicks() >= 0, "re-check never finished");
+        assertEquals(0, r.bannedLeft());
+        // every pickup and every re-checked player goes to a region thread
+        assertTrue(r.tasks() >= r.reenforced());
+    }
+
+    @Test
+    void shiftClicksOnFoliaCoalescePerTick() {
+        LoadSimulator.Result r = LoadSimulator.shiftClicks(PLAYERS, 40, SECONDS, true);
+        assertTrue(r.events() > 0);
+        assertTrue(r.tasks() > 0);
+        // two clicks per tick per player, one drain task each
+        assertTrue(r.tasks() <= r.events() / 2 + PLAYERS, "tasks " + r.tasks() + " for " + r.events() + " clicks");
+        assertEquals(0, r.bannedLeft());
+    }
+
+    @Test
+    void shiftClicksOnPaperQueueNothing() {
+        LoadSimulator.Result r = LoadSimulator.shiftClicks(PLAYERS, 40, SECONDS, false);
+        assertTrue(r.events() > 0);
+        assertEquals(0, r.tasks());
+    }
+}
@@ -0,0 +1,238 @@
+package me.example.banthings;
+
+import org.bukkit.entity.Player;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only log of everything the plugin removed, for tracking down dupers.
+ * <p>
+ * Records are tab-separated lines: time, player UUID, player name, world, key,
+ * amount, reason. Callers only put a record on a bounded lock-free queue; a
+ * single background thread drains it in batches every second (sooner when
+ * the queue fills up) and appends to audit.log. Once the file grows past the
+ * size limit it is renamed with a timestamp, and only the newest rotated files
+ * are kept. When the queue is full, new records are dropped and counted
+ * rather than blocking the caller.
+ * <p>
+ * Queries run on the same thread, so they never see a file mid-rotation.
+ */
+final class AuditLog {
+
+    enum Reason { BANNED, LIMIT, EFFECT_CLEARED, EFFECT_REMOVED, EFFECT_BLOCKED }
+
+    record Entry(long time, UUID player, String name, String world, String key, int amount, Reason reason) {
+    }
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1000L;
+    private static final String CURRENT = "audit.log";
+    private static final DateTimeFormatter ROTATED_NAME =
+            DateTimeFormatter.ofPattern("'audit-'yyyyMMdd-HHmmss-SSS").withZone(ZoneId.systemDefault());
+
+    private final Path dir;
+    private final Logger logger;
+    private final int capacity;
+    private final long maxFileBytes;
+    private final int maxFiles;
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+    private final ScheduledExecutorService executor;
+
+    AuditLog(Path dir, Logger logger, int capacity, long maxFileBytes, int maxFiles) {
+        this.dir = dir;
+        this.logger = logger;
+        this.capacity = Math.max(1, capacity);
+        this.maxFileBytes = Math.max(1024L, maxFileBytes);
+        this.maxFiles = Math.max(1, maxFiles);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "BanThings-Audit");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // ----------------------------
+    // Recording (any thread)
+    // ----------------------------
+
+    void removals(Player p, EnforceResult r) {
+        long now = System.currentTimeMillis();
+        String world = p.getWorld().getName();
+        r.removedBanned.forEach((k, v) -> offer(new Entry(now, p.getUniqueId(), p.getName(), world, k, v, Reason.BANNED)));
+        r.removedLimited.forEach((k, v) -> offer(new Entry(now, p.getUniqueId(), p.getName(), world, k, v, Reason.LIMIT)));
+    }
+
+    void effect(Player p, String effectKey, Reason reason) {
+        offer(new Entry(System.currentTimeMillis(), p.getUniqueId(), p.getName(), p.getWorld().getName(),
+                effectKey, 1, reason));
+    }
+
+    private void offer(Entry e) {
+        int n = queued.incrementAndGet();
+        if (n > capacity) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        queue.offer(e);
+        // flush early once half full instead of waiting for the next interval
+        if (n >= capacity / 2 && flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException ignored) {
+                // shutting down; close() drains what is left
+            }
+        }
+    }
+
+    // ----------------------------
+    // Writer thread
+    // ----------------------------
+
+    private void flush() {
+        flushRequested.set(false);
+        if (queue.isEmpty()) return;
+
+        StringBuilder batch = new StringBuilder();
+        Entry e;
+        while ((e = queue.poll()) != null) {
+            queued.decrementAndGet();
+            format(batch, e);
+        }
+        long lost = dropped.sumThenReset();
+        if (lost > 0) logger.warning("Audit queue was full, " + lost + " records dropped");
+
+        try {
+            Files.createDirectories(dir);
+            Path file = dir.resolve(CURRENT);
+            try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                w.append(batch);
+            }
+            if (Files.size(file) >= maxFileBytes) rotate(file);
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Could not write audit log", ex);
+        }
+    }
+
+    private static void format(StringBuilder sb, Entry e) {
+        sb.append(Instant.ofEpochMilli(e.time())).append('\t')
+                .append(e.player()).append('\t')
+                .append(clean(e.name())).append('\t')
+                .append(clean(e.world())).append('\t')
+                .append(clean(e.key())).append('\t')
+                .append(e.amount()).append('\t')
+                .append(e.reason().name().toLowerCase(Locale.ROOT)).append('\n');
+    }
+
+    private static String clean(String s) {
+        return s == null ? "-" : s.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    private void rotate(Path file) throws IOException {
+        String stamp = ROTATED_NAME.format(Instant.now());
+        // the counter keeps rotations within the same millisecond apart, and sorted
+        for (int n = 0; ; n++) {
+            try {
+                Files.move(file, dir.resolve(String.format(Locale.ROOT, "%s-%03d.log", stamp, n)));
+                break;
+            } catch (FileAlreadyExistsException e) {
+                if (n >= 999) throw e;
+            }
+        }
+
+        List<Path> rotated = rotatedNewestFirst();
+        for (int i = maxFiles; i < rotated.size(); i++) Files.deleteIfExists(rotated.get(i));
+    }
+
+    private List<Path> rotatedNewestFirst() throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return files;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "audit-*.log")) {
+            for (Path p : ds) files.add(p);
+        }
+        // names sort by their timestamp and counter
+        files.sort(Comparator.comparing((Path p) -> p.getFileName().toString()).reversed());
+        return files;
+    }
+
+    // ----------------------------
+    // Queries
+    // ----------------------------
+
+    /**
+     * Finds the player's most recent records, newest last, and hands them to
+     * {@code result} on the audit thread. Pending records are written first.
+     */
+    void recent(UUID player, int limit, Consumer<List<String>> result) {
+        try {
+            executor.execute(() -> {
+                flush();
+                result.accept(read(player.toString(), limit));
+            });
+        } catch (RejectedExecutionException e) {
+            result.accept(List.of());
+        }
+    }
+
+    private List<String> read(String uuid, int limit) {
+        Deque<String> found = new ArrayDeque<>();
+        try {
+            List<Path> files = new ArrayList<>();
+            files.add(dir.resolve(CURRENT));
+            files.addAll(rotatedNewestFirst());
+
+            // newest file first; within a file keep the last matches
+            for (Path file : files) {
+                if (!Files.exists(file)) continue;
+                Deque<String> inFile = new ArrayDeque<>();
+                try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        int tab = line.indexOf('\t');
+                        if (tab < 0 || !line.startsWith(uuid, tab + 1)) continue;
+                        inFile.addLast(line);
+                        if (inFile.size() > limit - found.size()) inFile.removeFirst();
+                    }
+                }
+                while (!inFile.isEmpty()) found.addFirst(inFile.removeLast());
+                if (found.size() >= limit) break;
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read audit log", e);
+        }
+        return new ArrayList<>(found);
+    }
+
+    /** Stops the writer thread and writes whatever is still queued on the calling thread. */
+    void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Audit writer did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
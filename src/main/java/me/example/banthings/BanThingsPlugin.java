@@ -1,42 +1,44 @@
 package me.example.banthings;
 
-import net.kyori.adventure.text.Component;
+import io.papermc.paper.event.server.ServerResourcesReloadedEvent;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.*;
-import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.*;
-import org.bukkit.event.entity.EntityPickupItemEvent;
-import org.bukkit.event.entity.EntityPotionEffectEvent;
-import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.event.inventory.InventoryDragEvent;
-import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.event.player.PlayerSwapHandItemsEvent;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.stream.Stream;
 
 public final class BanThingsPlugin extends JavaPlugin implements Listener, TabExecutor {
 
-    private enum NotifyMode { OFF, CHAT, ACTIONBAR, BOTH }
+    // bigger item selections need a trailing "confirm" argument
+    private static final int CONFIRM_ABOVE = 64;
 
-    private final Set<String> bannedItems = new HashSet<>();
-    private final Map<String, Integer> itemLimits = new HashMap<>();
-    private final Set<String> bannedEffects = new HashSet<>();
+    // replaced as a whole on every change, never modified in place
+    private final AtomicReference<RuleSnapshot> rules = new AtomicReference<>(RuleSnapshot.EMPTY);
 
-    private NotifyMode notifyMode = NotifyMode.CHAT;
-
-    private String msgRemovedBanned;
-    private String msgRemovedLimited;
-    private String msgClearedEffects;
+    private Notifier notifier;
 
     private String msgListEmpty;
     private String msgHeaderBanned;
@@ -45,18 +47,77 @@ public final class BanThingsPlugin extends JavaPlugin implements Listener, TabEx
 
     private final LegacyComponentSerializer legacy = LegacyComponentSerializer.legacyAmpersand();
 
+    private Scheduling scheduling;
+    private Enforcement enforcement;
+
+    private final Metrics metrics = new Metrics();
+
+    // registered and unregistered by syncListeners() as the rules change
+    private InventoryListener inventoryListener;
+    private final EffectListener effectListener = new EffectListener(this, metrics);
+    // null when no source is enabled in the config
+    private SourceListener sourceListener;
+    private final Set<Listener> registeredListeners = new HashSet<>();
+    private JoinQueue joinQueue;
+    private Scheduling.Task metricsLogTask;
+
+    private ConfigWriter configWriter;
+
+    // CLEAR_ALL: let a banned effect apply, then clear every effect; BLOCK: cancel it before it applies
+    private enum EffectMode { CLEAR_ALL, BLOCK }
+
+    private volatile EffectMode effectMode = EffectMode.CLEAR_ALL;
+    private volatile boolean removeOnlyBannedEffects;
+
+    private Sweeper sweeper;
+
+    // caches wildcard and tag expansions for the item commands
+    private final MaterialSelector selector = new MaterialSelector();
+
+    // null when audit.enabled is false
+    private AuditLog audit;
+
+    private RuleUpdates ruleUpdates;
+
+    // swapped as a whole on reload, so the file can be parsed off the main thread
+    private volatile FileConfiguration config;
+    // config.yml as last loaded; file events that leave it unchanged are ignored
+    private volatile String loadedText;
+    // null when reload.watch-file is false
+    private ConfigWatcher configWatcher;
+
     @Override
     public void onEnable() {
         saveDefaultConfig();
+        scheduling = new Scheduling(this);
+        notifier = new Notifier(scheduling);
+        enforcement = new Enforcement(scheduling, () -> rules.get().items(), metrics, Bukkit::getPlayer, this::removed);
+        inventoryListener = new InventoryListener(enforcement, metrics);
+        ruleUpdates = new RuleUpdates(rules, () -> {
+            configWriter.markDirty();
+            syncListeners();
+        }, scheduling, enforcement, Bukkit::getPlayer, Bukkit::getOnlinePlayers, this::enforceEffects, getLogger());
+        joinQueue = new JoinQueue(this, metrics);
+        configWriter = new ConfigWriter(new File(getDataFolder(), "config.yml").toPath(), getLogger(),
+                () -> rules.get().toPersisted());
         reloadAll();
+        if (getConfig().getBoolean("audit.enabled", true)) {
+            audit = new AuditLog(new File(getDataFolder(), "audit").toPath(), getLogger(),
+                    getConfig().getInt("audit.queue-size", 10_000),
+                    Math.max(1L, getConfig().getLong("audit.max-file-size-kb", 1024L)) * 1024L,
+                    getConfig().getInt("audit.max-files", 10));
+        }
 
         Bukkit.getPluginManager().registerEvents(this, this);
+        joinQueue.start();
+        enforcement.start();
 
         // Команды
         for (String cmd : List.of(
                 "banitem", "unbanitem", "banlist",
                 "limititem", "unlimititem", "limitlist",
-                "baneffect", "unbaneffect", "effectlist"
+                "baneffect", "unbaneffect", "effectlist",
+                "banthings"
         )) {
             PluginCommand pc = getCommand(cmd);
             if (pc != null) {
@@ -68,46 +129,205 @@ public final class BanThingsPlugin extends JavaPlugin implements Listener, TabEx
         }
     }
 
+    @Override
+    public void onDisable() {
+        if (configWatcher != null) configWatcher.close();
+        if (ruleUpdates != null) ruleUpdates.cancel();
+        if (sweeper != null) sweeper.cancel();
+        if (joinQueue != null) joinQueue.cancel();
+        if (metricsLogTask != null) metricsLogTask.cancel();
+        if (configWriter != null) configWriter.close();
+        if (audit != null) audit.close();
+    }
+
+    Scheduling scheduling() {
+        return scheduling;
+    }
+
     private void reloadAll() {
         reloadConfig();
-        loadFromConfig();
+        configWriter.setBase(getConfig().saveToString(), getConfig().getLong("persistence.debounce-ms", 1000L));
+        loadFromConfig(RuleSnapshot.fromConfig(getConfig(), getLogger()));
         loadMessages();
     }
 
-    private void loadFromConfig() {
-        bannedItems.clear();
-        itemLimits.clear();
-        bannedEffects.clear();
+    // ----------------------------
+    // Config loading
+    // ----------------------------
 
-        bannedItems.addAll(getConfig().getStringList("banned-items")
-                .stream().map(s -> s.toLowerCase(Locale.ROOT)).collect(Collectors.toSet()));
+    @Override
+    public FileConfiguration getConfig() {
+        if (config == null) reloadConfig();
+        return config;
+    }
 
-        bannedEffects.addAll(getConfig().getStringList("banned-effects")
-                .stream().map(s -> s.toLowerCase(Locale.ROOT)).collect(Collectors.toSet()));
+    @Override
+    public void reloadConfig() {
+        String text = readConfigText();
+        try {
+            config = parseConfig(text);
+        } catch (InvalidConfigurationException e) {
+            getLogger().log(Level.SEVERE, "Could not load config.yml, using defaults", e);
+            config = withDefaults(new YamlConfiguration());
+        }
+        loadedText = text;
+    }
+
+    private String readConfigText() {
+        try {
+            return Files.readString(new File(getDataFolder(), "config.yml").toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Could not read config.yml", e);
+            return "";
+        }
+    }
+
+    /** Parses config.yml text with the jar's defaults behind it; safe on any thread. */
+    private YamlConfiguration parseConfig(String text) throws InvalidConfigurationException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.loadFromString(text);
+        return withDefaults(yaml);
+    }
+
+    private YamlConfiguration withDefaults(YamlConfiguration yaml) {
+        InputStream in = getResource("config.yml");
+        if (in != null) {
+            yaml.setDefaults(YamlConfiguration.loadConfiguration(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        }
+        return yaml;
+    }
 
-        ConfigurationSection sec = getConfig().getConfigurationSection("item-limits");
-        if (sec != null) {
-            for (String key : sec.getKeys(false)) {
-                int v = sec.getInt(key, -1);
-                if (v >= 0) itemLimits.put(key.toLowerCase(Locale.ROOT), v);
+    /**
+     * Reloads config.yml without blocking the server: the file is read and
+     * parsed on an async thread, then applied in one swap on the main thread.
+     * Only players who may hold an item whose rule got stricter are re-checked;
+     * new effect bans re-check everyone's effects. {@code issuer} is null when
+     * the file watcher triggered the reload, which then skips our own writes
+     * and unchanged files.
+     * <p>
+     * Rule changes from commands still waiting to be saved are written first,
+     * unless the file was edited meanwhile: then the edit wins and they are
+     * dropped with a warning.
+     */
+    private void reloadFromDisk(CommandSender issuer) {
+        scheduling.runAsync(() -> {
+            String text = readSavedConfigText(issuer);
+            if (issuer == null && (configWriter.isOwnWrite(text) || text.equals(loadedText))) return;
+
+            YamlConfiguration parsed;
+            try {
+                parsed = parseConfig(text);
+            } catch (InvalidConfigurationException e) {
+                getLogger().warning("config.yml has errors, rules left unchanged: " + e.getMessage());
+                if (issuer != null) replyLater(issuer, List.of("&cОшибка в config.yml, правила не изменены: " + e.getMessage()));
+                return;
             }
+            RuleSnapshot next = RuleSnapshot.fromConfig(parsed, getLogger());
+            scheduling.runGlobal(() -> applyReload(issuer, text, parsed, next));
+        });
+    }
+
+    private String readSavedConfigText(CommandSender issuer) {
+        String text = readConfigText();
+        if (!configWriter.hasPending()) return text;
+        if (configWriter.isOwnWrite(text) || text.equals(loadedText)) {
+            configWriter.flush();
+            return readConfigText();
+        }
+        getLogger().warning("config.yml was edited while rule changes from commands were not saved yet, those changes are dropped");
+        if (issuer != null) replyLater(issuer, List.of("&econfig.yml изменён вручную, несохранённые изменения из команд отброшены."));
+        return text;
+    }
+
+    private void applyReload(CommandSender issuer, String text, YamlConfiguration parsed, RuleSnapshot next) {
+        RuleSnapshot previous = rules.get();
+        config = parsed;
+        loadedText = text;
+        configWriter.setBase(parsed.saveToString(), parsed.getLong("persistence.debounce-ms", 1000L));
+        loadFromConfig(next);
+        loadMessages();
+        selector.clear();
+
+        Set<Material> tightened = next.tightenedSince(previous);
+        boolean effects = next.bansEffectsSince(previous);
+        CommandSender reportTo = issuer != null ? issuer : Bukkit.getConsoleSender();
+        send(reportTo, "&aКонфиг перезагружен. Ужесточено правил для предметов: &e" + tightened.size()
+                + "&a, новые запреты эффектов: &e" + (effects ? "да" : "нет"));
+
+        if (effects) {
+            ruleUpdates.reenforceOnline(reporter(reportTo), !tightened.isEmpty(), true);
+        } else if (!tightened.isEmpty()) {
+            ruleUpdates.reenforceHolding(reporter(reportTo), tightened);
         }
+    }
 
-        String mode = getConfig().getString("notify-mode", "CHAT").toUpperCase(Locale.ROOT);
+    private void loadFromConfig(RuleSnapshot snapshot) {
+        rules.set(snapshot);
+
+        SourceListener sources = new SourceListener(rules::get, metrics,
+                getConfig().getBoolean("sources.hoppers", false),
+                getConfig().getBoolean("sources.item-spawns", false),
+                getConfig().getBoolean("sources.dispensers", false));
+        setListener(sourceListener, false);
+        sourceListener = sources.anyEnabled() ? sources : null;
+
+        ruleUpdates.configure(Math.max(0L, getConfig().getLong("reenforce.tick-budget-nanos", 2_000_000L)),
+                Math.max(0L, getConfig().getLong("reenforce.progress-interval-seconds", 5L)) * 20L);
+
+        String em = getConfig().getString("effects.mode", "CLEAR_ALL").toUpperCase(Locale.ROOT);
         try {
-            notifyMode = NotifyMode.valueOf(mode);
+            effectMode = EffectMode.valueOf(em);
         } catch (IllegalArgumentException ignored) {
-            notifyMode = NotifyMode.CHAT;
+            getLogger().warning("Unknown effects.mode: " + em + ", using CLEAR_ALL");
+            effectMode = EffectMode.CLEAR_ALL;
+        }
+        removeOnlyBannedEffects = getConfig().getBoolean("effects.remove-only-banned", false);
+
+        joinQueue.configure(Math.max(0L, getConfig().getLong("join.tick-budget-nanos", 1_000_000L)),
+                getConfig().getBoolean("join.block-until-checked", true));
+
+        enforcement.setContainerScanner(getConfig().getBoolean("nested-containers.enabled", true)
+                ? new ContainerScanner()
+                : null);
+
+        if (sweeper != null) sweeper.cancel();
+        sweeper = null;
+        if (getConfig().getBoolean("sweeper.enabled", true)) {
+            sweeper = new Sweeper(this,
+                    Math.max(1L, getConfig().getLong("sweeper.period-seconds", 60L)) * 20L,
+                    getConfig().getInt("sweeper.max-players-per-tick", 4),
+                    getConfig().getDouble("sweeper.backoff-mspt", 40.0));
+            sweeper.start();
+        }
+
+        if (metricsLogTask != null) metricsLogTask.cancel();
+        metricsLogTask = null;
+        long logTicks = Math.max(0L, getConfig().getLong("metrics.log-interval-seconds", 0L)) * 20L;
+        if (logTicks > 0) {
+            metricsLogTask = scheduling.runTimer(() -> getLogger().info("Stats: " + metrics.summary()), logTicks, logTicks);
         }
+
+        boolean watch = getConfig().getBoolean("reload.watch-file", false);
+        long watchDebounce = getConfig().getLong("reload.debounce-ms", 500L);
+        // a changed delay needs a new watcher
+        if (configWatcher != null && (!watch || configWatcher.debounceMillis() != watchDebounce)) {
+            configWatcher.close();
+            configWatcher = null;
+        }
+        if (configWatcher == null && watch) {
+            configWatcher = new ConfigWatcher(configWriter.file(), getLogger(), watchDebounce, () -> reloadFromDisk(null));
+            try {
+                configWatcher.start();
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Could not watch config.yml for changes", e);
+                configWatcher = null;
+            }
+        }
+        syncListeners();
     }
 
     private void loadMessages() {
-        msgRemovedBanned = getConfig().getString("messages.removed-banned-item",
-                "&c[BanThings] &fRemoved banned item: &e%item% &7x%amount%");
-        msgRemovedLimited = getConfig().getString("messages.removed-limited-item",
-                "&6[BanThings] &fLimit exceeded: &e%item% &7(limit %limit%). Removed: x%amount%");
-        msgClearedEffects = getConfig().getString("messages.cleared-effects",
-                "&c[BanThings] &fBanned effect received (&e%effect%&f). Cleared all effects.");
+        notifier.load(getConfig(), legacy);
 
         msgListEmpty = getConfig().getString("command.list-empty", "&7(empty)");
         msgHeaderBanned = getConfig().getString("command.list-header-banned", "&eBanned items:&f");
@@ -115,31 +335,95 @@ public final class BanThingsPlugin extends JavaPlugin implements Listener, TabEx
         msgHeaderEffects = getConfig().getString("command.list-header-effects", "&eBanned effects:&f");
     }
 
-    private void saveToConfig() {
-        getConfig().set("banned-items", new ArrayList<>(bannedItems));
-        getConfig().set("banned-effects", new ArrayList<>(bannedEffects));
+    private RuleSnapshot updateRules(UnaryOperator<RuleSnapshot> change) {
+        return ruleUpdates.update(change);
+    }
+
+    RuleSnapshot rules() {
+        return rules.get();
+    }
+
+    // ----------------------------
+    // Listener registration
+    // ----------------------------
 
-        Map<String, Object> limits = new LinkedHashMap<>();
-        itemLimits.keySet().stream().sorted().forEach(k -> limits.put(k, itemLimits.get(k)));
-        getConfig().set("item-limits", limits);
+    /** Registers exactly the listeners the current rules need; unused features stay off the event bus. */
+    private synchronized void syncListeners() {
+        RuleSnapshot snapshot = rules.get();
+        ItemRuleTable table = snapshot.items();
+        boolean items = table.hasBans() || table.hasLimits();
+        if (items && !registeredListeners.contains(inventoryListener)) {
+            // shadow inventories went stale while no events were tracked
+            enforcement.clear();
+        }
+        setListener(inventoryListener, items);
+        setListener(effectListener, !snapshot.bannedEffects().isEmpty());
+        setListener(joinQueue, items || !snapshot.bannedEffects().isEmpty());
+        setListener(sourceListener, table.hasBans());
+    }
 
-        saveConfig();
+    private synchronized void setListener(Listener listener, boolean enabled) {
+        if (listener == null || enabled == registeredListeners.contains(listener)) return;
+        if (enabled) {
+            Bukkit.getPluginManager().registerEvents(listener, this);
+            registeredListeners.add(listener);
+        } else {
+            HandlerList.unregisterAll(listener);
+            registeredListeners.remove(listener);
+        }
     }
 
     // ----------------------------
     // Helpers: parsing
     // ----------------------------
 
-    private Material parseMaterial(String input) {
-        if (input == null) return null;
-        String s = input.trim();
-        if (s.isEmpty()) return null;
-        Material m = Material.matchMaterial(s, true);
-        if (m == null) m = Material.matchMaterial(s.toUpperCase(Locale.ROOT));
-        return m;
+    /**
+     * Resolves every argument to materials; reports the first one that selects
+     * nothing and returns null. Keys come back in argument order without duplicates.
+     */
+    private Set<Material> resolveMaterials(CommandSender sender, String[] args, int from, int to) {
+        Set<Material> out = new LinkedHashSet<>();
+        for (int i = from; i < to; i++) {
+            List<Material> ms = selector.resolve(args[i]);
+            if (ms.isEmpty()) {
+                send(sender, "&cНеизвестный предмет: " + args[i]);
+                return null;
+            }
+            out.addAll(ms);
+        }
+        return out;
+    }
+
+    private static boolean isNumber(String s) {
+        return !s.isEmpty() && s.chars().allMatch(Character::isDigit);
+    }
+
+    private static boolean confirmArg(String[] args) {
+        return args.length > 0 && args[args.length - 1].equalsIgnoreCase("confirm");
+    }
+
+    /** False, after telling the sender how to confirm, if a large selection came without "confirm". */
+    private boolean sizeConfirmed(CommandSender sender, Set<Material> ms, boolean confirm) {
+        if (confirm || ms.size() <= CONFIRM_ABOVE) return true;
+        send(sender, "&eВыбрано предметов: " + ms.size() + ". Повтори команду с &fconfirm &eв конце, чтобы применить.");
+        return false;
+    }
+
+    private static List<String> keysOf(Collection<Material> ms) {
+        List<String> keys = new ArrayList<>(ms.size());
+        for (Material m : ms) keys.add(keyOf(m));
+        return keys;
+    }
+
+    /** "key" for a single item, otherwise the count and the first few keys. */
+    private static String describeKeys(List<String> keys) {
+        if (keys.size() == 1) return keys.get(0);
+        int shown = Math.min(keys.size(), 10);
+        String head = String.join("&7, &e", keys.subList(0, shown));
+        return keys.size() + " &7шт.: &e" + head + (keys.size() > shown ? "&7, ..." : "");
     }
 
-    private String keyOf(Material m) {
+    static String keyOf(Material m) {
         return m.getKey().toString().toLowerCase(Locale.ROOT);
     }
 
@@ -164,254 +448,126 @@ public final class BanThingsPlugin extends JavaPlugin implements Listener, TabEx
     }
 
     // ----------------------------
-    // Notifications
+    // Inventory enforcement
     // ----------------------------
 
-    private void notifyPlayer(Player p, String raw) {
-        if (notifyMode == NotifyMode.OFF) return;
-        Component c = legacy.deserialize(raw);
-        if (notifyMode == NotifyMode.CHAT || notifyMode == NotifyMode.BOTH) {
-            p.sendMessage(c);
-        }
-        if (notifyMode == NotifyMode.ACTIONBAR || notifyMode == NotifyMode.BOTH) {
-            p.sendActionBar(c);
-        }
-    }
-
-    private String fmt(String template, Map<String, String> vars) {
-        String out = template;
-        for (Map.Entry<String, String> e : vars.entrySet()) {
-            out = out.replace("%" + e.getKey() + "%", e.getValue());
-        }
-        return out;
+    private void removed(Player p, EnforceResult r) {
+        notifier.enforcement(p, r);
+        if (audit != null) audit.removals(p, r);
     }
 
     // ----------------------------
-    // Inventory enforcement
+    // Re-enforcement after rule changes
     // ----------------------------
 
-    private static final class EnforceResult {
-        // key -> removed amount
-        final Map<String, Integer> removedBanned = new HashMap<>();
-        final Map<String, Integer> removedLimited = new HashMap<>();
-        final Map<String, Integer> limitValue = new HashMap<>();
-
-        boolean hasAnything() {
-            return !removedBanned.isEmpty() || !removedLimited.isEmpty();
-        }
+    /** Sends job reports to the issuer while they stay online. */
+    private Consumer<String> reporter(CommandSender issuer) {
+        return raw -> {
+            if (!(issuer instanceof Player p) || p.isOnline()) send(issuer, raw);
+        };
     }
 
-    private EnforceResult enforcePlayerInventory(Player p) {
-        PlayerInventory inv = p.getInventory();
-        EnforceResult res = new EnforceResult();
-
-        removeBannedFromAllSlots(inv, res);
-        applyLimits(inv, res);
-
-        return res;
+    /** {@code slots} as for {@link PlayerInventoryState#markSlots}; ALL_SLOTS reads every container again. */
+    private boolean recheck(Player p, boolean items, boolean effects, long slots) {
+        boolean found = items && enforcement.recheck(p, slots);
+        if (effects && enforceEffects(p)) found = true;
+        return found;
     }
 
-    private void removeBannedFromAllSlots(PlayerInventory inv, EnforceResult res) {
-        // storage
-        ItemStack[] storage = inv.getStorageContents();
-        boolean changed = false;
-        for (int i = 0; i < storage.length; i++) {
-            ItemStack it = storage[i];
-            if (it == null || it.getType().isAir()) continue;
-            String k = keyOf(it.getType());
-            if (bannedItems.contains(k)) {
-                res.removedBanned.merge(k, it.getAmount(), Integer::sum);
-                storage[i] = null;
-                changed = true;
-            }
-        }
-        if (changed) inv.setStorageContents(storage);
-
-        // armor
-        ItemStack[] armor = inv.getArmorContents();
-        changed = false;
-        for (int i = 0; i < armor.length; i++) {
-            ItemStack it = armor[i];
-            if (it == null || it.getType().isAir()) continue;
-            String k = keyOf(it.getType());
-            if (bannedItems.contains(k)) {
-                res.removedBanned.merge(k, it.getAmount(), Integer::sum);
-                armor[i] = null;
-                changed = true;
-            }
-        }
-        if (changed) inv.setArmorContents(armor);
-
-        // offhand
-        ItemStack off = inv.getItemInOffHand();
-        if (off != null && !off.getType().isAir()) {
-            String k = keyOf(off.getType());
-            if (bannedItems.contains(k)) {
-                res.removedBanned.merge(k, off.getAmount(), Integer::sum);
-                inv.setItemInOffHand(null);
-            }
-        }
+    boolean hasItemRules() {
+        ItemRuleTable table = rules.get().items();
+        return table.hasBans() || table.hasLimits();
     }
 
-    private void applyLimits(PlayerInventory inv, EnforceResult res) {
-        if (itemLimits.isEmpty()) return;
-
-        // count totals for every limited item
-        Map<String, Integer> counts = new HashMap<>();
-        for (String k : itemLimits.keySet()) counts.put(k, 0);
-
-        java.util.function.Consumer<ItemStack> countOne = (it) -> {
-            if (it == null || it.getType().isAir()) return;
-            String k = keyOf(it.getType());
-            if (counts.containsKey(k)) {
-                counts.put(k, counts.get(k) + it.getAmount());
-            }
-        };
-
-        for (ItemStack it : inv.getStorageContents()) countOne.accept(it);
-        for (ItemStack it : inv.getArmorContents()) countOne.accept(it);
-        countOne.accept(inv.getItemInOffHand());
-
-        // remove extras
-        for (String k : new ArrayList<>(itemLimits.keySet())) {
-            int limit = itemLimits.getOrDefault(k, Integer.MAX_VALUE);
-            if (limit < 0) continue;
-
-            int have = counts.getOrDefault(k, 0);
-            int extra = have - limit;
-            if (extra <= 0) continue;
-
-            res.limitValue.put(k, limit);
-
-            ItemStack[] storage = inv.getStorageContents();
-            extra = removeExtraFromArray(storage, k, extra, res);
-            inv.setStorageContents(storage);
-
-            if (extra > 0) {
-                ItemStack[] armor = inv.getArmorContents();
-                extra = removeExtraFromArray(armor, k, extra, res);
-                inv.setArmorContents(armor);
-            }
-
-            if (extra > 0) {
-                ItemStack off = inv.getItemInOffHand();
-                if (off != null && !off.getType().isAir() && keyOf(off.getType()).equals(k)) {
-                    int take = Math.min(extra, off.getAmount());
-                    off.setAmount(off.getAmount() - take);
-                    res.removedLimited.merge(k, take, Integer::sum);
-                    extra -= take;
-                    if (off.getAmount() <= 0) inv.setItemInOffHand(null);
-                }
-            }
-        }
+    /** The single check a joining player gets: inventory and effects in one pass. */
+    void joinCheck(Player p) {
+        recheck(p, hasItemRules(), true, PlayerInventoryState.ALL_SLOTS);
     }
 
-    private int removeExtraFromArray(ItemStack[] arr, String key, int extra, EnforceResult res) {
-        if (extra <= 0) return 0;
-        for (int i = arr.length - 1; i >= 0; i--) {
-            ItemStack it = arr[i];
-            if (it == null || it.getType().isAir()) continue;
-            if (!keyOf(it.getType()).equals(key)) continue;
-
-            int take = Math.min(extra, it.getAmount());
-            it.setAmount(it.getAmount() - take);
-            res.removedLimited.merge(key, take, Integer::sum);
-            extra -= take;
-
-            if (it.getAmount() <= 0) arr[i] = null;
-            if (extra <= 0) break;
-        }
-        return extra;
+    /**
+     * Background sweep of one player's inventory; returns true if anything was
+     * removed. It is there for changes no event reported, so containers are read again.
+     */
+    boolean sweepPlayer(Player p) {
+        boolean found = recheck(p, true, false, PlayerInventoryState.ALL_SLOTS);
+        metrics.swept(found);
+        return found;
     }
 
-    private void notifyEnforcement(Player p, EnforceResult r) {
-        if (!r.removedBanned.isEmpty()) {
-            for (Map.Entry<String, Integer> e : r.removedBanned.entrySet()) {
-                notifyPlayer(p, fmt(msgRemovedBanned, Map.of(
-                        "item", e.getKey(),
-                        "amount", String.valueOf(e.getValue())
-                )));
-            }
-        }
-        if (!r.removedLimited.isEmpty()) {
-            for (Map.Entry<String, Integer> e : r.removedLimited.entrySet()) {
-                int limit = r.limitValue.getOrDefault(e.getKey(), itemLimits.getOrDefault(e.getKey(), 0));
-                notifyPlayer(p, fmt(msgRemovedLimited, Map.of(
-                        "item", e.getKey(),
-                        "amount", String.valueOf(e.getValue()),
-                        "limit", String.valueOf(limit)
-                )));
+    private boolean enforceEffects(Player p) {
+        RuleSnapshot snapshot = rules.get();
+        if (snapshot.bannedEffects().isEmpty()) return false;
+        long start = Metrics.start();
+        boolean found = false;
+        for (PotionEffect eff : p.getActivePotionEffects()) {
+            PotionEffectType t = eff.getType();
+            if (!snapshot.isEffectBanned(t)) continue;
+            found = true;
+            if (!removeOnlyBannedEffects) {
+                clearEffects(p, t);
+                break;
             }
+            removeEffect(p, t);
         }
+        metrics.record(Metrics.Probe.EFFECT_CHECK, start);
+        return found;
     }
 
-    private void enforceSoon(Player p) {
-        Bukkit.getScheduler().runTask(this, () -> {
-            EnforceResult r = enforcePlayerInventory(p);
-            if (r.hasAnything()) notifyEnforcement(p, r);
-        });
+    boolean blocksEffects() {
+        return effectMode == EffectMode.BLOCK;
     }
 
-    // ----------------------------
-    // Inventory events
-
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onPickup(EntityPickupItemEvent e) {
-        if (e.getEntity() instanceof Player p) enforceSoon(p);
-    }
-
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onClick(InventoryClickEvent e) {
-        if (e.getWhoClicked() instanceof Player p) enforceSoon(p);
+    /** Follows up on a banned effect that was applied: removes it alone or clears everything, per config. */
+    void removeBannedEffect(Player p, PotionEffectType t) {
+        if (removeOnlyBannedEffects) {
+            removeEffect(p, t);
+        } else {
+            clearEffects(p, t);
+        }
     }
 
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onDrag(InventoryDragEvent e) {
-        if (e.getWhoClicked() instanceof Player p) enforceSoon(p);
+    void effectBlocked(Player p, PotionEffectType t) {
+        metrics.effectBlocked();
+        String k = keyOf(t);
+        if (k == null) return;
+        notifier.effectBlocked(p, k);
+        if (audit != null) audit.effect(p, k, AuditLog.Reason.EFFECT_BLOCKED);
     }
 
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onSwapHands(PlayerSwapHandItemsEvent e) {
-        enforceSoon(e.getPlayer());
+    private void clearEffects(Player p, PotionEffectType banned) {
+        p.clearActivePotionEffects();
+        metrics.effectCleared();
+        String k = keyOf(banned);
+        if (k == null) return;
+        notifier.effectCleared(p, k);
+        if (audit != null) audit.effect(p, k, AuditLog.Reason.EFFECT_CLEARED);
     }
 
-    @EventHandler
-    public void onJoin(PlayerJoinEvent e) {
-        enforceSoon(e.getPlayer());
-
-        Bukkit.getScheduler().runTask(this, () -> {
-            Player p = e.getPlayer();
-            for (PotionEffect eff : p.getActivePotionEffects()) {
-                String k = keyOf(eff.getType());
-                if (k != null && bannedEffects.contains(k)) {
-                    p.clearActivePotionEffects();
-                    notifyPlayer(p, fmt(msgClearedEffects, Map.of("effect", k)));
-                    break;
-                }
-            }
-        });
+    private void removeEffect(Player p, PotionEffectType banned) {
+        p.removePotionEffect(banned);
+        metrics.effectCleared();
+        String k = keyOf(banned);
+        if (k == null) return;
+        notifier.effectRemoved(p, k);
+        if (audit != null) audit.effect(p, k, AuditLog.Reason.EFFECT_REMOVED);
     }
 
     // ----------------------------
-    // Effect banning
+    // Always-on events
     // ----------------------------
 
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onPotionChange(EntityPotionEffectEvent e) {
-        if (!(e.getEntity() instanceof Player p)) return;
-
-        PotionEffect newEff = e.getNewEffect();
-        if (newEff == null) return;
-
-        String k = keyOf(newEff.getType());
-        if (k == null) return;
+    @EventHandler
+    public void onQuit(PlayerQuitEvent e) {
+        UUID id = e.getPlayer().getUniqueId();
+        enforcement.forget(id);
+        joinQueue.forget(id);
+        notifier.forget(id);
+    }
 
-        if (bannedEffects.contains(k)) {
-            Bukkit.getScheduler().runTask(this, () -> {
-                p.clearActivePotionEffects();
-                notifyPlayer(p, fmt(msgClearedEffects, Map.of("effect", k)));
-            });
-        }
+    @EventHandler
+    public void onResourcesReloaded(ServerResourcesReloadedEvent e) {
+        // data packs may have changed item tags
+        selector.clear();
     }
 
     // ----------------------------
@@ -422,7 +578,7 @@ public final class BanThingsPlugin extends JavaPlugin implements Listener, TabEx
         return sender.hasPermission("banthings.admin");
     }
 
-    private void send(CommandSender sender, String raw) {
+    void send(CommandSender sender, String raw) {
         if (sender instanceof Player p) {
             p.sendMessage(legacy.deserialize(raw));
         } else {
@@ -441,49 +597,45 @@ public final class BanThingsPlugin extends JavaPlugin implements Listener, TabEx
 
         switch (cmd) {
             case "banitem" -> {
-                if (args.length != 1) return false;
-                Material m = parseMaterial(args[0]);
-                if (m == null) {
-                    send(sender, "&cНеизвестный предмет: " + args[0]);
-                    return true;
-                }
-                bannedItems.add(keyOf(m));
-                saveToConfig();
-                send(sender, "&aЗабанен предмет: &e" + keyOf(m));
-                for (Player p : Bukkit.getOnlinePlayers()) enforceSoon(p);
+                boolean confirm = confirmArg(args);
+                int to = confirm ? args.length - 1 : args.length;
+                if (to < 1) return false;
+                Set<Material> ms = resolveMaterials(sender, args, 0, to);
+                if (ms == null || !sizeConfirmed(sender, ms, confirm)) return true;
+                List<String> keys = keysOf(ms);
+                updateRules(r -> r.withBannedItems(keys));
+                send(sender, "&aЗабанен предмет: &e" + describeKeys(keys));
+                ruleUpdates.reenforceHolding(reporter(sender), ms);
                 return true;
             }
             case "unbanitem" -> {
-                if (args.length != 1) return false;
-                Material m = parseMaterial(args[0]);
-                if (m == null) {
-                    send(sender, "&cНеизвестный предмет: " + args[0]);
-                    return true;
-                }
-                bannedItems.remove(keyOf(m));
-                saveToConfig();
-                send(sender, "&aРазбанен предмет: &e" + keyOf(m));
+                if (args.length < 1) return false;
+                Set<Material> ms = resolveMaterials(sender, args, 0, args.length);
+                if (ms == null) return true;
+                List<String> keys = keysOf(ms);
+                updateRules(r -> r.withoutBannedItems(keys));
+                send(sender, "&aРазбанен предмет: &e" + describeKeys(keys));
                 return true;
             }
             case "banlist" -> {
                 send(sender, msgHeaderBanned);
-                if (bannedItems.isEmpty()) {
+                RuleSnapshot snapshot = rules.get();
+                List<ItemMatcher> itemRules = snapshot.items().itemRules();
+                if (snapshot.bannedItemKeys().isEmpty() && itemRules.isEmpty()) {
                     send(sender, "  " + msgListEmpty);
                     return true;
                 }
-                bannedItems.stream().sorted().forEach(s -> send(sender, "  &7- &e" + s));
+                for (String s : snapshot.bannedItemKeys().keys()) send(sender, "  &7- &e" + s);
+                for (ItemMatcher m : itemRules) send(sender, "  &7- &e" + m.describe());
                 return true;
             }
             case "limititem" -> {
-                if (args.length != 2) return false;
-                Material m = parseMaterial(args[0]);
-                if (m == null) {
-                    send(sender, "&cНеизвестный предмет: " + args[0]);
-                    return true;
-                }
+                boolean confirm = confirmArg(args);
+                int to = confirm ? args.length - 1 : args.length;
+                if (to < 2) return false;
                 int limit;
                 try {
-                    limit = Integer.parseInt(args[1]);
+                    limit = Integer.parseInt(args[to - 1]);
                 } catch (NumberFormatException ex) {
                     send(sender, "&cЛимит должен быть числом.");
                     return true;
@@ -492,33 +644,34 @@ public final class BanThingsPlugin extends JavaPlugin implements Listener, TabEx
                     send(sender, "&cЛимит не может быть отрицательным.");
                     return true;
                 }
-                itemLimits.put(keyOf(m), limit);
-                saveToConfig();
-                send(sender, "&aЛимит установлен: &e" + keyOf(m) + " &a-> &e" + limit);
-                for (Player p : Bukkit.getOnlinePlayers()) enforceSoon(p);
+                Set<Material> ms = resolveMaterials(sender, args, 0, to - 1);
+                if (ms == null || !sizeConfirmed(sender, ms, confirm)) return true;
+                List<String> keys = keysOf(ms);
+                updateRules(r -> r.withLimits(keys, limit));
+                send(sender, "&aЛимит установлен: &e" + describeKeys(keys) + " &a-> &e" + limit);
+                ruleUpdates.reenforceHolding(reporter(sender), ms);
                 return true;
             }
             case "unlimititem" -> {
-                if (args.length != 1) return false;
-                Material m = parseMaterial(args[0]);
-                if (m == null) {
-                    send(sender, "&cНеизвестный предмет: " + args[0]);
-                    return true;
-                }
-                itemLimits.remove(keyOf(m));
-                saveToConfig();
-                send(sender, "&aЛимит убран: &e" + keyOf(m));
+                if (args.length < 1) return false;
+                Set<Material> ms = resolveMaterials(sender, args, 0, args.length);
+                if (ms == null) return true;
+                List<String> keys = keysOf(ms);
+                updateRules(r -> r.withoutLimits(keys));
+                send(sender, "&aЛимит убран: &e" + describeKeys(keys));
                 return true;
             }
             case "limitlist" -> {
                 send(sender, msgHeaderLimits);
+                RuleSnapshot snapshot = rules.get();
+                Map<String, Integer> itemLimits = snapshot.itemLimits();
                 if (itemLimits.isEmpty()) {
                     send(sender, "  " + msgListEmpty);
                     return true;
                 }
-                itemLimits.keySet().stream().sorted().forEach(k ->
-                        send(sender, "  &7- &e" + k + " &7: &f" + itemLimits.get(k))
-                );
+                for (String k : snapshot.limitedItemKeys().keys()) {
+                    send(sender, "  &7- &e" + k + " &7: &f" + itemLimits.get(k));
+                }
                 return true;
             }
             case "baneffect" -> {
@@ -533,22 +686,9 @@ public final class BanThingsPlugin extends JavaPlugin implements Listener, TabEx
                     send(sender, "&cНе удалось получить ключ эффекта.");
                     return true;
                 }
-                bannedEffects.add(k);
-                saveToConfig();
+                updateRules(r -> r.withBannedEffect(k));
                 send(sender, "&aЗабанен эффект: &e" + k);
-
-                Bukkit.getScheduler().runTask(this, () -> {
-                    for (Player p : Bukkit.getOnlinePlayers()) {
-                        for (PotionEffect eff : p.getActivePotionEffects()) {
-                            String kk = keyOf(eff.getType());
-                            if (kk != null && bannedEffects.contains(kk)) {
-                                p.clearActivePotionEffects();
-                                notifyPlayer(p, fmt(msgClearedEffects, Map.of("effect", kk)));
-                                break;
-                            }
-                        }
-                    }
-                });
+                ruleUpdates.reenforceOnline(reporter(sender), false, true);
                 return true;
             }
             case "unbaneffect" -> {
@@ -563,25 +703,104 @@ public final class BanThingsPlugin extends JavaPlugin implements Listener, TabEx
                     send(sender, "&cНе удалось получить ключ эффекта.");
                     return true;
                 }
-                bannedEffects.remove(k);
-                saveToConfig();
+                updateRules(r -> r.withoutBannedEffect(k));
                 send(sender, "&aРазбанен эффект: &e" + k);
                 return true;
             }
             case "effectlist" -> {
                 send(sender, msgHeaderEffects);
+                KeyIndex bannedEffects = rules.get().bannedEffectKeys();
                 if (bannedEffects.isEmpty()) {
                     send(sender, "  " + msgListEmpty);
                     return true;
                 }
-                bannedEffects.stream().sorted().forEach(s -> send(sender, "  &7- &e" + s));
+                for (String s : bannedEffects.keys()) send(sender, "  &7- &e" + s);
                 return true;
             }
+            case "banthings" -> {
+                return banthings(sender, args);
+            }
         }
 
         return false;
     }
 
+    private boolean banthings(CommandSender sender, String[] args) {
+        if (args.length < 1) return false;
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "stats" -> {
+                if (args.length > 2) return false;
+                if (args.length == 2) {
+                    if (!args[1].equalsIgnoreCase("reset")) return false;
+                    metrics.reset();
+                    send(sender, "&aСтатистика сброшена.");
+                    return true;
+                }
+                for (String line : metrics.report()) send(sender, line);
+                return true;
+            }
+            case "reload" -> {
+                if (args.length != 1) return false;
+                send(sender, "&7Перезагрузка config.yml...");
+                reloadFromDisk(sender);
+                return true;
+            }
+            case "audit" -> {
+                if (args.length < 2 || args.length > 3) return false;
+                if (audit == null) {
+                    send(sender, "&cЖурнал удалений выключен (audit.enabled).");
+                    return true;
+                }
+                OfflinePlayer target = Bukkit.getPlayerExact(args[1]);
+                if (target == null) target = Bukkit.getOfflinePlayerIfCached(args[1]);
+                if (target == null) {
+                    send(sender, "&cИгрок не найден: " + args[1]);
+                    return true;
+                }
+                int count = 10;
+                if (args.length == 3) {
+                    try {
+                        count = Math.max(1, Math.min(100, Integer.parseInt(args[2])));
+                    } catch (NumberFormatException ex) {
+                        send(sender, "&cКоличество должно быть числом.");
+                        return true;
+                    }
+                }
+                String name = target.getName() != null ? target.getName() : args[1];
+                audit.recent(target.getUniqueId(), count, lines -> replyLater(sender, auditReport(name, lines)));
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private static List<String> auditReport(String name, List<String> lines) {
+        List<String> out = new ArrayList<>();
+        if (lines.isEmpty()) {
+            out.add("&7Записей для &e" + name + " &7нет.");
+            return out;
+        }
+        out.add("&eПоследние удаления у &f" + name + "&e:");
+        for (String line : lines) {
+            // time, uuid, name, world, key, amount, reason
+            String[] f = line.split("\t");
+            if (f.length < 7) continue;
+            out.add("  &7" + f[0] + " &f" + f[3] + " &e" + f[4] + " &7x" + f[5] + " &8(" + f[6] + ")");
+        }
+        return out;
+    }
+
+    /** Sends from a background thread: players get it on their own thread, the console right away. */
+    private void replyLater(CommandSender sender, List<String> lines) {
+        if (sender instanceof Player p) {
+            scheduling.runFor(p, () -> lines.forEach(l -> send(p, l)));
+        } else {
+            lines.forEach(l -> send(sender, l));
+        }
+    }
+
     // ----------------------------
     // Tab Complete
     // ----------------------------
@@ -592,42 +811,59 @@ public final class BanThingsPlugin extends JavaPlugin implements Listener, TabEx
         if (!isAdmin(sender)) return Collections.emptyList();
 
         if ((cmd.equals("banitem") || cmd.equals("unbanitem") || cmd.equals("limititem") || cmd.equals("unlimititem"))
-                && args.length == 1) {
-            String prefix = args[0].toLowerCase(Locale.ROOT);
+                && args.length >= 1) {
+            String prefix = args[args.length - 1].toLowerCase(Locale.ROOT);
 
+            if (prefix.startsWith("#")) {
+                List<String> tags = new ArrayList<>();
+                for (String k : selector.tagKeys().complete(prefix.substring(1), Completions.MAX_RESULTS)) tags.add("#" + k);
+                return tags;
+            }
             if (cmd.equals("unbanitem")) {
-                return bannedItems.stream().filter(s -> s.startsWith(prefix)).sorted().toList();
+                return rules.get().bannedItemKeys().complete(prefix, Completions.MAX_RESULTS);
             }
             if (cmd.equals("unlimititem")) {
-                return itemLimits.keySet().stream().filter(s -> s.startsWith(prefix)).sorted().toList();
+                return rules.get().limitedItemKeys().complete(prefix, Completions.MAX_RESULTS);
+            }
+            // after the limit only "confirm" can follow
+            if (cmd.equals("limititem") && args.length >= 3 && isNumber(args[args.length - 2])) {
+                return "confirm".startsWith(prefix) ? List.of("confirm") : Collections.emptyList();
+            }
+            if (cmd.equals("limititem") && args.length >= 2 && (prefix.isEmpty() || Character.isDigit(prefix.charAt(0)))) {
+                return Stream.of("0", "1", "2", "4", "8", "16", "32", "64").filter(s -> s.startsWith(prefix)).toList();
+            }
+            if (cmd.equals("banitem") && args.length >= 2 && !prefix.isEmpty() && "confirm".startsWith(prefix)) {
+                List<String> out = new ArrayList<>(Completions.materials(prefix));
+                out.add(0, "confirm");
+                return out;
             }
 
-            return Arrays.stream(Material.values())
-                    .filter(m -> !m.isAir())
-                    .map(m -> m.getKey().toString())
-                    .filter(s -> s.startsWith(prefix))
-                    .limit(50)
-                    .toList();
+            return Completions.materials(prefix);
         }
 
-        if (cmd.equals("limititem") && args.length == 2) {
-            return List.of("0", "1", "2", "4", "8", "16", "32", "64");
+        if (cmd.equals("banthings") && args.length == 1) {
+            String prefix = args[0].toLowerCase(Locale.ROOT);
+            return Stream.of("stats", "audit", "reload").filter(s -> s.startsWith(prefix)).toList();
+        }
+        if (cmd.equals("banthings") && args.length == 2 && args[0].equalsIgnoreCase("stats")) {
+            return "reset".startsWith(args[1].toLowerCase(Locale.ROOT)) ? List.of("reset") : Collections.emptyList();
+        }
+        if (cmd.equals("banthings") && args.length == 2 && args[0].equalsIgnoreCase("audit")) {
+            String prefix = args[1].toLowerCase(Locale.ROOT);
+            List<String> names = new ArrayList<>();
+            for (Player p : Bukkit.getOnlinePlayers()) {
+                if (p.getName().toLowerCase(Locale.ROOT).startsWith(prefix)) names.add(p.getName());
+            }
+            return names;
         }
 
         if ((cmd.equals("baneffect") || cmd.equals("unbaneffect")) && args.length == 1) {
             String prefix = args[0].toLowerCase(Locale.ROOT);
 
             if (cmd.equals("unbaneffect")) {
-                return bannedEffects.stream().filter(s -> s.startsWith(prefix)).sorted().toList();
-            }
-
-            List<String> all = new ArrayList<>();
-            for (PotionEffectType t : PotionEffectType.values()) {
-                if (t == null) continue;
-                NamespacedKey k = t.getKey();
-                if (k != null) all.add(k.toString().toLowerCase(Locale.ROOT));
+                return rules.get().bannedEffectKeys().complete(prefix, Completions.MAX_RESULTS);
             }
-            return all.stream().filter(s -> s.startsWith(prefix)).sorted().limit(50).toList();
+            return Completions.effects(prefix);
         }
 
         return Collections.emptyList();
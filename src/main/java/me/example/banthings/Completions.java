@@ -0,0 +1,54 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Tab completion over every material and effect key, indexed once on first use. */
+final class Completions {
+
+    static final int MAX_RESULTS = 50;
+
+    private Completions() {
+    }
+
+    // separate holders so neither registry is read before it's needed
+    private static final class MaterialKeys {
+        static final KeyIndex INDEX = build();
+
+        private static KeyIndex build() {
+            List<String> keys = new ArrayList<>();
+            for (Material m : Material.values()) {
+                if (m.isLegacy() || m.isAir() || !m.isItem()) continue;
+                keys.add(m.getKey().toString());
+            }
+            return KeyIndex.of(keys);
+        }
+    }
+
+    private static final class EffectKeys {
+        static final KeyIndex INDEX = build();
+
+        private static KeyIndex build() {
+            List<String> keys = new ArrayList<>();
+            for (PotionEffectType t : PotionEffectType.values()) {
+                if (t == null) continue;
+                NamespacedKey k = t.getKey();
+                if (k != null) keys.add(k.toString().toLowerCase(Locale.ROOT));
+            }
+            return KeyIndex.of(keys);
+        }
+    }
+
+    static List<String> materials(String prefix) {
+        return MaterialKeys.INDEX.complete(prefix, MAX_RESULTS);
+    }
+
+    static List<String> effects(String prefix) {
+        return EffectKeys.INDEX.complete(prefix, MAX_RESULTS);
+    }
+}
@@ -0,0 +1,88 @@
+package me.example.banthings;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Watches config.yml and calls back once the file has stopped changing for the
+ * debounce delay. An editor save usually produces several events (truncate,
+ * write, or a temp file renamed over the original), and they all end in a
+ * single callback.
+ * <p>
+ * The callback runs on the watcher thread. Filtering out the plugin's own
+ * writes is the callback's job.
+ */
+final class ConfigWatcher {
+
+    private final Path file;
+    private final Logger logger;
+    private final long debounceMillis;
+    private final Runnable onChange;
+
+    private WatchService service;
+    private Thread thread;
+
+    ConfigWatcher(Path file, Logger logger, long debounceMillis, Runnable onChange) {
+        this.file = file;
+        this.logger = logger;
+        this.debounceMillis = debounceMillis;
+        this.onChange = onChange;
+    }
+
+    long debounceMillis() {
+        return debounceMillis;
+    }
+
+    void start() throws IOException {
+        service = file.getFileSystem().newWatchService();
+        file.getParent().register(service,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this::run, "BanThings-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void close() {
+        if (service == null) return;
+        try {
+            service.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+        thread.interrupt();
+        service = null;
+    }
+
+    private void run() {
+        WatchService ws = service;
+        try {
+            while (true) {
+                if (!touched(ws.take())) continue;
+                // wait until the events stop
+                WatchKey more;
+                long quiet = Math.max(50L, debounceMillis);
+                while ((more = ws.poll(quiet, TimeUnit.MILLISECONDS)) != null) touched(more);
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Config reload after file change failed", e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed by close()
+        }
+    }
+
+    /** Consumes the key's events; true if any of them was about config.yml. */
+    private boolean touched(WatchKey key) {
+        boolean hit = false;
+        for (WatchEvent<?> e : key.pollEvents()) {
+            if (e.context() instanceof Path p && p.equals(file.getFileName())) hit = true;
+        }
+        key.reset();
+        return hit;
+    }
+}
@@ -0,0 +1,132 @@
+package me.example.banthings;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes rule changes to config.yml off the main thread.
+ * <p>
+ * Rule changes only mark the writer dirty. Once the debounce delay has passed
+ * the writer takes the current immutable rule snapshot and writes it, so a burst
+ * of commands ends in a single write of the latest rules. The file is written to a temp file and then
+ * renamed over config.yml, so a crash never leaves a half-written config.
+ */
+final class ConfigWriter {
+
+    record Rules(List<String> bannedItems, Map<String, Integer> itemLimits, List<String> bannedEffects) {
+    }
+
+    private final Path file;
+    private final Logger logger;
+    private final ScheduledExecutorService executor;
+    private final Supplier<Rules> rules;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final Object writeLock = new Object();
+
+    private volatile long debounceMillis;
+    // everything in config.yml besides the rules, as of the last (re)load
+    private volatile String baseYaml = "";
+    // what the last write put into config.yml, so the file watcher can skip our own writes
+    private volatile String lastWritten;
+    private ScheduledFuture<?> scheduled;
+
+    ConfigWriter(Path file, Logger logger, Supplier<Rules> rules) {
+        this.file = file;
+        this.logger = logger;
+        this.rules = rules;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "BanThings-ConfigWriter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    void setBase(String yaml, long debounceMillis) {
+        this.baseYaml = yaml;
+        this.debounceMillis = Math.max(0L, debounceMillis);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /** True if config.yml holds exactly what this writer last wrote. */
+    boolean isOwnWrite(String text) {
+        return text.equals(lastWritten);
+    }
+
+    void markDirty() {
+        dirty.set(true);
+        synchronized (this) {
+            if (scheduled != null) return;
+            if (executor.isShutdown()) return;
+            scheduled = executor.schedule(this::flush, debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** True if a rule change is waiting for the debounce delay to pass. */
+    boolean hasPending() {
+        return dirty.get();
+    }
+
+    /** Stops the writer thread and writes whatever is still pending on the calling thread. */
+    void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("Config writer did not stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /** Writes pending changes now, on the calling thread. */
+    void flush() {
+        // submits arriving while we write schedule a new flush
+        synchronized (this) {
+            scheduled = null;
+        }
+        synchronized (writeLock) {
+            if (!dirty.getAndSet(false)) return;
+            try {
+                write(rules.get());
+            } catch (IOException | InvalidConfigurationException e) {
+                logger.log(Level.SEVERE, "Could not save " + file, e);
+            }
+        }
+    }
+
+    private void write(Rules rules) throws IOException, InvalidConfigurationException {
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.loadFromString(baseYaml);
+        yaml.set("banned-items", rules.bannedItems());
+        yaml.set("banned-effects", rules.bannedEffects());
+        yaml.set("item-limits", rules.itemLimits());
+
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        String text = yaml.saveToString();
+        lastWritten = text;
+        Files.writeString(tmp, text, StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
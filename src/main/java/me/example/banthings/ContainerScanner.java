@@ -0,0 +1,198 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.ShulkerBox;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.BlockStateMeta;
+import org.bukkit.inventory.meta.BundleMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.*;
+
+/**
+ * Looks inside shulker boxes and bundles carried in an inventory.
+ * <p>
+ * Reading a container's contents means copying its meta and unpacking the
+ * block state or bundle list, and no cheaper fingerprint of the item exists in
+ * this API (even ItemStack#hashCode copies the meta). So nothing is cached
+ * here; the totals read are kept per slot in {@link PlayerInventoryState} and
+ * reused while the slot hasn't changed. They don't depend on the rules, so
+ * they stay valid across rule changes.
+ * <p>
+ * Nested containers (bundles in bundles, bundles in shulkers) are followed up
+ * to {@link #MAX_DEPTH} levels.
+ */
+final class ContainerScanner {
+
+    static final int MAX_DEPTH = 4;
+
+    private static final BitSet CONTAINERS = containerMaterials();
+
+    /** Material totals inside one container, including nested containers. */
+    record Contents(Material[] types, int[] amounts) {
+        static final Contents EMPTY = new Contents(new Material[0], new int[0]);
+
+        boolean isEmpty() {
+            return types.length == 0;
+        }
+
+        /** True if something inside is banned, or may be by a component rule. */
+        boolean anyBanned(ItemRuleTable rules) {
+            for (Material m : types) {
+                if (rules.isBanned(m) || rules.hasItemRules(m)) return true;
+            }
+            return false;
+        }
+
+        int amountOf(Material m) {
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] == m) return amounts[i];
+            }
+            return 0;
+        }
+    }
+
+    /** Changes a container's items in place; returns true if anything changed. */
+    private interface ItemsEditor {
+        boolean edit(ItemStack[] items);
+    }
+
+    // by name rather than Tag.SHULKER_BOXES, so the benchmarks can run it without a server
+    private static BitSet containerMaterials() {
+        BitSet set = new BitSet();
+        for (Material m : Material.values()) {
+            if (m.isLegacy()) continue;
+            String n = m.name();
+            if (n.endsWith("SHULKER_BOX") || m == Material.BUNDLE || n.endsWith("_BUNDLE")) set.set(m.ordinal());
+        }
+        return set;
+    }
+
+    static boolean isContainer(Material m) {
+        return CONTAINERS.get(m.ordinal());
+    }
+
+    Contents contents(ItemStack container) {
+        return contents(container, 0);
+    }
+
+    private Contents contents(ItemStack container, int depth) {
+        if (!container.hasItemMeta()) return Contents.EMPTY;
+        ItemStack[] items = read(container.getItemMeta());
+        if (items == null) return Contents.EMPTY;
+
+        Map<Material, Integer> totals = new LinkedHashMap<>();
+        for (ItemStack in : items) {
+            if (in == null || in.getType().isAir()) continue;
+            totals.merge(in.getType(), in.getAmount(), Integer::sum);
+            if (depth < MAX_DEPTH && isContainer(in.getType())) {
+                Contents inner = contents(in, depth + 1);
+                for (int i = 0; i < inner.types.length; i++) totals.merge(inner.types[i], inner.amounts[i], Integer::sum);
+            }
+        }
+
+        Material[] types = totals.keySet().toArray(new Material[0]);
+        int[] amounts = new int[types.length];
+        for (int i = 0; i < types.length; i++) amounts[i] = totals.get(types[i]);
+        return totals.isEmpty() ? Contents.EMPTY : new Contents(types, amounts);
+    }
+
+    /** Removes banned items from the container and its nested containers; returns true if any were removed. */
+    boolean stripBanned(ItemStack container, ItemRuleTable rules, EnforceResult res) {
+        return stripBanned(container, rules, res, 0);
+    }
+
+    private boolean stripBanned(ItemStack container, ItemRuleTable rules, EnforceResult res, int depth) {
+        return edit(container, items -> {
+            boolean changed = false;
+            for (int i = 0; i < items.length; i++) {
+                ItemStack in = items[i];
+                if (in == null || in.getType().isAir()) continue;
+                Material t = in.getType();
+                if (rules.isBanned(in)) {
+                    res.removedBanned.merge(BanThingsPlugin.keyOf(t), in.getAmount(), Integer::sum);
+                    items[i] = null;
+                    changed = true;
+                } else if (depth < MAX_DEPTH && isContainer(t) && contents(in, depth + 1).anyBanned(rules)) {
+                    changed |= stripBanned(in, rules, res, depth + 1);
+                }
+            }
+            return changed;
+        });
+    }
+
+    /**
+     * Removes up to {@code extra} items of the type from the container, last
+     * slot first, descending into nested containers. Returns what is left to remove.
+     */
+    int removeExtra(ItemStack container, Material type, int extra) {
+        return removeExtra(container, type, extra, 0);
+    }
+
+    private int removeExtra(ItemStack container, Material type, int extra, int depth) {
+        int[] left = {extra};
+        edit(container, items -> {
+            boolean changed = false;
+            for (int i = items.length - 1; i >= 0 && left[0] > 0; i--) {
+                ItemStack in = items[i];
+                if (in == null || in.getType().isAir()) continue;
+                if (in.getType() == type) {
+                    int take = Math.min(left[0], in.getAmount());
+                    in.setAmount(in.getAmount() - take);
+                    left[0] -= take;
+                    if (in.getAmount() <= 0) items[i] = null;
+                    changed = true;
+                } else if (depth < MAX_DEPTH && isContainer(in.getType()) && contents(in, depth + 1).amountOf(type) > 0) {
+                    int before = left[0];
+                    left[0] = removeExtra(in, type, before, depth + 1);
+                    changed |= left[0] != before;
+                }
+            }
+            return changed;
+        });
+        return left[0];
+    }
+
+    // ----------------------------
+    // Reading and writing container items
+    // ----------------------------
+
+    private static ItemStack[] read(ItemMeta meta) {
+        if (meta instanceof BundleMeta bm) {
+            return bm.hasItems() ? bm.getItems().toArray(new ItemStack[0]) : null;
+        }
+        if (meta instanceof BlockStateMeta bsm && bsm.hasBlockState()
+                && bsm.getBlockState() instanceof ShulkerBox box) {
+            return box.getInventory().getContents();
+        }
+        return null;
+    }
+
+    private static boolean edit(ItemStack container, ItemsEditor editor) {
+        if (!container.hasItemMeta()) return false;
+        ItemMeta meta = container.getItemMeta();
+
+        if (meta instanceof BundleMeta bm) {
+            if (!bm.hasItems()) return false;
+            ItemStack[] items = bm.getItems().toArray(new ItemStack[0]);
+            if (!editor.edit(items)) return false;
+            List<ItemStack> kept = new ArrayList<>(items.length);
+            for (ItemStack in : items) {
+                if (in != null && !in.getType().isAir()) kept.add(in);
+            }
+            bm.setItems(kept);
+            return container.setItemMeta(bm);
+        }
+        if (meta instanceof BlockStateMeta bsm && bsm.hasBlockState()) {
+            BlockState state = bsm.getBlockState();
+            if (!(state instanceof ShulkerBox box)) return false;
+            ItemStack[] items = box.getInventory().getContents();
+            if (!editor.edit(items)) return false;
+            box.getInventory().setContents(items);
+            bsm.setBlockState(box);
+            return container.setItemMeta(bsm);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+package me.example.banthings;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPotionEffectEvent;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * Potion events for banned effects. {@link EntityPotionEffectEvent} fires for
+ * every mob on the server, so this is only registered while at least one
+ * effect is banned.
+ */
+final class EffectListener implements Listener {
+
+    private final BanThingsPlugin plugin;
+    private final Metrics metrics;
+
+    EffectListener(BanThingsPlugin plugin, Metrics metrics) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onPotionBlock(EntityPotionEffectEvent e) {
+        if (!plugin.blocksEffects() || !(e.getEntity() instanceof Player p)) return;
+
+        long start = Metrics.start();
+        PotionEffect newEff = e.getNewEffect();
+        if (newEff != null && plugin.rules().isEffectBanned(newEff.getType())) {
+            // never applied, so there is nothing to remove later
+            e.setCancelled(true);
+            plugin.effectBlocked(p, newEff.getType());
+        }
+        metrics.record(Metrics.Probe.POTION_BLOCK, start);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPotionChange(EntityPotionEffectEvent e) {
+        if (!(e.getEntity() instanceof Player p)) return;
+
+        long start = Metrics.start();
+        PotionEffect newEff = e.getNewEffect();
+        if (newEff != null && plugin.rules().isEffectBanned(newEff.getType())) {
+            PotionEffectType t = newEff.getType();
+            plugin.scheduling().runFor(p, () -> plugin.removeBannedEffect(p, t));
+        }
+        metrics.record(Metrics.Probe.POTION_CHANGE, start);
+    }
+}
@@ -0,0 +1,15 @@
+package me.example.banthings;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class EnforceResult {
+    // key -> removed amount
+    final Map<String, Integer> removedBanned = new HashMap<>();
+    final Map<String, Integer> removedLimited = new HashMap<>();
+    final Map<String, Integer> limitValue = new HashMap<>();
+
+    boolean hasAnything() {
+        return !removedBanned.isEmpty() || !removedLimited.isEmpty();
+    }
+}
@@ -0,0 +1,205 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Inventory enforcement for online players: the shadow state kept per player,
+ * the dirty set inventory events feed, and the pass that drains it.
+ * <p>
+ * Events only mark slots and the player; the check runs on the next tick,
+ * so a burst of clicks costs one pass. On Paper a timer drains the whole set
+ * every tick. On Folia each newly dirty player gets its own task on its region
+ * thread instead.
+ * <p>
+ * Everything the server would supply comes in through the constructor, so the
+ * load simulator drives this class the same way the plugin does.
+ */
+final class Enforcement {
+
+    private final Scheduling scheduling;
+    private final Supplier<ItemRuleTable> rules;
+    private final Metrics metrics;
+    // online player by id, null once they left
+    private final Function<UUID, Player> players;
+    // told about every pass that removed something
+    private final BiConsumer<Player, EnforceResult> removed;
+
+    // players whose inventory must be re-checked on the next tick
+    private final Set<UUID> dirtyPlayers = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, PlayerInventoryState> inventoryStates = new ConcurrentHashMap<>();
+
+    // null when shulker boxes and bundles are not looked into
+    private volatile ContainerScanner containerScanner;
+
+    Enforcement(Scheduling scheduling, Supplier<ItemRuleTable> rules, Metrics metrics,
+                Function<UUID, Player> players, BiConsumer<Player, EnforceResult> removed) {
+        this.scheduling = scheduling;
+        this.rules = rules;
+        this.metrics = metrics;
+        this.players = players;
+        this.removed = removed;
+    }
+
+    void start() {
+        // on Folia each dirty player gets its own task on its region thread instead
+        if (!scheduling.folia()) scheduling.runTimer(this::drainDirtyPlayers, 1L, 1L);
+    }
+
+    void setContainerScanner(ContainerScanner scanner) {
+        containerScanner = scanner;
+    }
+
+    /** Drops every shadow inventory, for when events went untracked for a while. */
+    void clear() {
+        inventoryStates.clear();
+    }
+
+    void forget(UUID id) {
+        inventoryStates.remove(id);
+        dirtyPlayers.remove(id);
+    }
+
+    PlayerInventoryState inventoryState(Player p) {
+        return inventoryStates.computeIfAbsent(p.getUniqueId(), id -> new PlayerInventoryState());
+    }
+
+    // ----------------------------
+    // Events
+    // ----------------------------
+
+    /** {@code slots} as for {@link PlayerInventoryState#markSlots}. */
+    void enforceSlotsSoon(Player p, long slots) {
+        if (slots == 0) return;
+        inventoryState(p).markSlots(slots);
+        markDirty(p);
+    }
+
+    /**
+     * The cursor changed, and the ender chest too when {@code enderSlots} is
+     * non-zero (see {@link PlayerInventoryState#markOutside}). Their amounts are
+     * re-read on the next pass, which also checks {@code slots} of the player
+     * inventory. Without limits this is a plain slot check.
+     */
+    void outsideChanged(Player p, long slots, long enderSlots) {
+        // marked even without limits, so recorded ender chest contents stay trustworthy
+        inventoryState(p).markOutside(enderSlots);
+        if (slots == 0) {
+            if (rules.get().hasLimits()) markDirty(p);
+            return;
+        }
+        enforceSlotsSoon(p, slots);
+    }
+
+    private void markDirty(Player p) {
+        if (!dirtyPlayers.add(p.getUniqueId())) {
+            metrics.coalesced();
+            return;
+        }
+        if (scheduling.folia()) scheduling.runFor(p, () -> drainPlayer(p));
+    }
+
+    private void drainDirtyPlayers() {
+        if (dirtyPlayers.isEmpty()) return;
+
+        // copy first: enforcement may mark players dirty again for the next tick
+        for (UUID id : dirtyPlayers.toArray(new UUID[0])) {
+            Player p = players.apply(id);
+            if (p == null) {
+                dirtyPlayers.remove(id);
+                continue;
+            }
+            drainPlayer(p);
+        }
+    }
+
+    private void drainPlayer(Player p) {
+        if (!dirtyPlayers.remove(p.getUniqueId())) return;
+        EnforceResult r = enforcePlayerInventory(p, inventoryState(p));
+        if (r.hasAnything()) removed.accept(p, r);
+    }
+
+    // ----------------------------
+    // Passes
+    // ----------------------------
+
+    /**
+     * Re-checks the player now; returns true if anything was removed.
+     * {@code slots} as for {@link PlayerInventoryState#markSlots}; ALL_SLOTS
+     * also reads every container and the ender chest again.
+     */
+    boolean recheck(Player p, long slots) {
+        PlayerInventoryState state = inventoryState(p);
+        state.markSlots(slots);
+        state.markOutside(slots == PlayerInventoryState.ALL_SLOTS ? -1L : PlayerInventoryState.FULL_PASS);
+        EnforceResult r = enforcePlayerInventory(p, state);
+        if (!r.hasAnything()) return false;
+        removed.accept(p, r);
+        return true;
+    }
+
+    private EnforceResult enforcePlayerInventory(Player p, PlayerInventoryState state) {
+        ItemRuleTable table = rules.get();
+        ContainerScanner nested = containerScanner;
+        // cursor and ender chest are only re-read after they changed
+        if (table.hasLimits() && InventoryEnforcer.refreshOutside(p, table, state, nested) && state.overLimit(table)) {
+            state.markSlots(PlayerInventoryState.FULL_PASS);
+        }
+        if (!state.needsFullScan(table)) {
+            long start = Metrics.start();
+            long slots = state.takeDirtySlots();
+            EnforceResult r = InventoryEnforcer.enforceSlots(p.getInventory(), table, state, slots, nested != null);
+            if (r != null) {
+                metrics.record(Metrics.Probe.DELTA_SCAN, start);
+                metrics.slotsExamined(Long.bitCount(slots));
+                metrics.removed(r);
+                return r;
+            }
+            // a limit was exceeded or a container moved: fall through to a full pass, which also resyncs the totals
+            metrics.deltaFallback();
+        }
+        long start = Metrics.start();
+        EnforceResult r = InventoryEnforcer.enforce(p.getInventory(), table, state, nested, p);
+        metrics.record(Metrics.Probe.FULL_SCAN, start);
+        metrics.slotsExamined(PlayerInventoryState.SLOT_COUNT);
+        metrics.removed(r);
+        return r;
+    }
+
+    // ----------------------------
+    // Rule changes
+    // ----------------------------
+
+    /**
+     * Players from {@code online} whose last scanned inventory contains any of
+     * the materials, plus those not scanned yet. While something is limited the
+     * cursor and the ender chest count as well, since limits trim them too.
+     */
+    List<UUID> playersHolding(Collection<? extends Player> online, Collection<Material> ms) {
+        boolean outside = rules.get().hasLimits();
+        List<UUID> ids = new ArrayList<>();
+        for (Player p : online) {
+            PlayerInventoryState state = inventoryStates.get(p.getUniqueId());
+            if (state == null || mayHoldAny(state, ms, outside)) ids.add(p.getUniqueId());
+        }
+        return ids;
+    }
+
+    private static boolean mayHoldAny(PlayerInventoryState state, Collection<Material> ms, boolean outside) {
+        for (Material m : ms) {
+            if (state.mayHold(m, outside)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,373 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+/**
+ * Single-pass enforcement over a player inventory.
+ * <p>
+ * Storage, armor and offhand are each read once; banned stacks are stripped and
+ * limited materials counted in the same pass. Only the slots that were actually
+ * modified are written back.
+ * <p>
+ * When a {@link PlayerInventoryState} is supplied, the full pass also records a
+ * shadow of the inventory so later clicks can be checked slot by slot through
+ * {@link #enforceSlots}.
+ * <p>
+ * With a {@link ContainerScanner}, shulker boxes and bundles are looked into as
+ * well: banned items inside are removed and nested amounts count toward limits.
+ * Extras over a limit are trimmed from top-level stacks first, then from inside
+ * containers.
+ * <p>
+ * Given the player, limits also count the cursor and the ender chest (cached in
+ * the state, see {@link #refreshOutside}). What is still over the limit after
+ * the player inventory is trimmed comes off the cursor, then out of the ender
+ * chest.
+ */
+final class InventoryEnforcer {
+
+    // PlayerInventory#setItem indexes: 0-35 storage, 36-39 armor (boots first), 40 offhand
+    static final int ARMOR_FIRST_SLOT = 36;
+    static final int OFFHAND_SLOT = 40;
+
+    private final ItemRuleTable rules;
+    private final ContainerScanner nested;
+    private final EnforceResult res = new EnforceResult();
+
+    // extras are removed in this order: storage, armor, offhand (each from the end)
+    private final ItemStack[][] groups;
+    // bit per PlayerInventory slot index
+    private long modified;
+    // contents of the containers in each slot, only when nested is set
+    private final ContainerScanner.Contents[] contents;
+    // contents read by earlier passes, reused for containers that haven't changed
+    private PlayerInventoryState.ContainerRecords records;
+    // per limitIndex, what applyLimits couldn't remove from the player inventory; null if nothing
+    private int[] leftover;
+
+    InventoryEnforcer(PlayerInventory inv, ItemRuleTable rules, ContainerScanner nested) {
+        this.rules = rules;
+        this.nested = nested;
+        this.contents = nested == null ? null : new ContainerScanner.Contents[PlayerInventoryState.SLOT_COUNT];
+        this.groups = new ItemStack[][]{
+                inv.getStorageContents(),
+                inv.getArmorContents(),
+                {inv.getItemInOffHand()}
+        };
+    }
+
+    /**
+     * Full pass. {@code state}, {@code nested} and {@code holder} may each be
+     * null. With a {@code holder} and a {@code state}, limits include the cursor
+     * and ender chest amounts cached in the state; call {@link #refreshOutside} first.
+     */
+    static EnforceResult enforce(PlayerInventory inv, ItemRuleTable rules, PlayerInventoryState state,
+                                 ContainerScanner nested, HumanEntity holder) {
+        if (state == null && !rules.hasBans() && !rules.hasLimits()) return new EnforceResult();
+        if (state != null) state.reset(rules);
+
+        InventoryEnforcer pass = new InventoryEnforcer(inv, rules, nested);
+        if (state != null) pass.records = state.containers;
+        int[] counts = pass.removeBannedAndCount();
+        if (counts != null) {
+            if (holder != null && state != null) {
+                for (int idx = 0; idx < counts.length; idx++) counts[idx] += state.outside(rules, idx);
+            }
+            pass.applyLimits(counts);
+        }
+        pass.writeBack(inv);
+        if (holder != null && pass.leftover != null) {
+            pass.trimOutside(holder);
+            // recount on the next pass; containers in the ender chest may have been trimmed
+            if (state != null) state.markOutside(-1L);
+        }
+        if (state != null) pass.recordShadow(state);
+        return pass.res;
+    }
+
+    /**
+     * Re-reads the cursor and recounts the ender chest if they were marked
+     * changed, or the rules changed since the last count. Returns true if
+     * anything was re-read. Only worth calling while some material is limited.
+     */
+    static boolean refreshOutside(HumanEntity holder, ItemRuleTable rules, PlayerInventoryState state,
+                                  ContainerScanner nested) {
+        boolean read = false;
+        if (state.takeCursorDirty()) {
+            ItemStack c = holder.getItemOnCursor();
+            boolean empty = c == null || c.getType().isAir();
+            state.setCursor(empty ? null : c.getType(), empty ? 0 : c.getAmount());
+            read = true;
+        }
+        if (state.needsEnderCount(rules)) {
+            state.setEnderTotals(rules, countLimited(holder.getEnderChest().getContents(), rules, nested, state));
+            read = true;
+        }
+        return read;
+    }
+
+    /** Totals per limitIndex over the ender chest items; also records every material seen in {@code state}. */
+    private static int[] countLimited(ItemStack[] items, ItemRuleTable rules, ContainerScanner nested,
+                                      PlayerInventoryState state) {
+        PlayerInventoryState.ContainerRecords records = state.enderContainers;
+        int[] counts = new int[rules.limitedCount()];
+        ContainerScanner.Contents[] read = nested == null ? null : new ContainerScanner.Contents[items.length];
+        state.clearEnderPresence();
+        for (int i = 0; i < items.length; i++) {
+            ItemStack it = items[i];
+            if (it == null || it.getType().isAir()) continue;
+            state.enderHolds(it.getType());
+            int idx = rules.limitIndex(it.getType());
+            if (idx >= 0) counts[idx] += it.getAmount();
+            if (read == null || !ContainerScanner.isContainer(it.getType())) continue;
+            ContainerScanner.Contents c = records.get(i, it.getType());
+            if (c == null) c = nested.contents(it);
+            read[i] = c;
+            for (int j = 0; j < c.types().length; j++) {
+                state.enderHolds(c.types()[j]);
+                int n = rules.limitIndex(c.types()[j]);
+                if (n >= 0) counts[n] += c.amounts()[j];
+            }
+        }
+        if (read == null) {
+            records.markStale(-1L);
+        } else {
+            records.clear();
+            for (int i = 0; i < read.length; i++) {
+                if (read[i] != null) records.put(i, items[i].getType(), read[i]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Re-checks only the given slots against the shadow in {@code state}.
+     * Banned stacks in those slots are removed directly. Returns null when a
+     * limit is exceeded, counting the cursor and ender chest amounts cached in
+     * {@code state}: trimming extras must follow the full-pass removal order, so
+     * the caller falls back to {@link #enforce}. Also returns null when a
+     * container was moved in or out of a slot while containers are scanned,
+     * since the shadow doesn't track what is inside them.
+     */
+    static EnforceResult enforceSlots(PlayerInventory inv, ItemRuleTable rules, PlayerInventoryState state, long mask,
+                                      boolean scanContainers) {
+        EnforceResult res = new EnforceResult();
+        boolean fullPassNeeded = false;
+
+        while (mask != 0) {
+            int slot = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+
+            ItemStack it = inv.getItem(slot);
+            Material t = (it == null || it.getType().isAir()) ? null : it.getType();
+            if (scanContainers && (isContainer(t) || isContainer(state.types[slot]))) fullPassNeeded = true;
+            if (t != null && rules.isBanned(it)) {
+                res.removedBanned.merge(BanThingsPlugin.keyOf(t), it.getAmount(), Integer::sum);
+                inv.setItem(slot, null);
+                t = null;
+            }
+
+            int total = state.put(slot, t, t == null ? 0 : it.getAmount());
+            if (total >= 0 && total + state.outside(rules, rules.limitIndex(t)) > rules.limit(t)) fullPassNeeded = true;
+        }
+        return fullPassNeeded ? null : res;
+    }
+
+    /** Strips banned stacks and returns totals per limited material, or null if there are no limits. */
+    int[] removeBannedAndCount() {
+        int[] counts = rules.hasLimits() ? new int[rules.limitedCount()] : null;
+        for (int g = 0; g < groups.length; g++) {
+            ItemStack[] arr = groups[g];
+            for (int i = 0; i < arr.length; i++) {
+                ItemStack it = arr[i];
+                if (it == null) continue;
+                Material t = it.getType();
+                if (t.isAir()) continue;
+
+                if (rules.isBanned(it)) {
+                    res.removedBanned.merge(BanThingsPlugin.keyOf(t), it.getAmount(), Integer::sum);
+                    arr[i] = null;
+                    modified |= 1L << slotOf(g, i);
+                    continue;
+                }
+                if (counts != null) {
+                    int idx = rules.limitIndex(t);
+                    if (idx >= 0) counts[idx] += it.getAmount();
+                }
+                if (nested != null && ContainerScanner.isContainer(t)) scanContainer(g, i, it, counts);
+            }
+        }
+        return counts;
+    }
+
+    private void scanContainer(int group, int index, ItemStack it, int[] counts) {
+        int slot = slotOf(group, index);
+        ContainerScanner.Contents c = records == null ? null : records.get(slot, it.getType());
+        if (c == null) c = nested.contents(it);
+        if (c.anyBanned(rules) && nested.stripBanned(it, rules, res)) {
+            modified |= 1L << slot;
+            c = nested.contents(it);
+        }
+        // kept even when empty, so an empty container is not read again next time
+        contents[slot] = c;
+        if (counts == null) return;
+        for (int j = 0; j < c.types().length; j++) {
+            int idx = rules.limitIndex(c.types()[j]);
+            if (idx >= 0) counts[idx] += c.amounts()[j];
+        }
+    }
+
+    private static boolean isContainer(Material m) {
+        return m != null && ContainerScanner.isContainer(m);
+    }
+
+    void applyLimits(int[] counts) {
+        for (int idx = 0; idx < counts.length; idx++) {
+            Material m = rules.limited(idx);
+            int limit = rules.limit(m);
+
+            int extra = counts[idx] - limit;
+            if (extra <= 0) continue;
+
+            String k = BanThingsPlugin.keyOf(m);
+            res.limitValue.put(k, limit);
+
+            for (int g = 0; g < groups.length && extra > 0; g++) {
+                extra = removeExtraFromArray(g, m, k, extra);
+            }
+            for (int g = 0; g < groups.length && extra > 0 && contents != null; g++) {
+                extra = removeExtraFromContainers(g, m, k, extra);
+            }
+            if (extra > 0) {
+                // the rest is on the cursor or in the ender chest
+                if (leftover == null) leftover = new int[counts.length];
+                leftover[idx] = extra;
+            }
+        }
+    }
+
+    /** Takes what the player inventory couldn't cover off the cursor, then out of the ender chest (last slot first). */
+    private void trimOutside(HumanEntity holder) {
+        Inventory ender = null;
+        ItemStack[] enderItems = null;
+        for (int idx = 0; idx < leftover.length; idx++) {
+            int extra = leftover[idx];
+            if (extra <= 0) continue;
+            Material m = rules.limited(idx);
+            String k = BanThingsPlugin.keyOf(m);
+
+            ItemStack cursor = holder.getItemOnCursor();
+            if (cursor != null && cursor.getType() == m) {
+                int take = Math.min(extra, cursor.getAmount());
+                cursor.setAmount(cursor.getAmount() - take);
+                holder.setItemOnCursor(cursor.getAmount() > 0 ? cursor : null);
+                res.removedLimited.merge(k, take, Integer::sum);
+                extra -= take;
+            }
+            if (extra <= 0) continue;
+
+            if (ender == null) {
+                ender = holder.getEnderChest();
+                enderItems = ender.getContents();
+            }
+            for (int i = enderItems.length - 1; i >= 0 && extra > 0; i--) {
+                ItemStack it = enderItems[i];
+                if (it == null || it.getType().isAir()) continue;
+                int before = extra;
+                if (it.getType() == m) {
+                    int take = Math.min(extra, it.getAmount());
+                    it.setAmount(it.getAmount() - take);
+                    extra -= take;
+                    if (it.getAmount() <= 0) enderItems[i] = null;
+                } else if (nested != null && ContainerScanner.isContainer(it.getType())
+                        && nested.contents(it).amountOf(m) > 0) {
+                    extra = nested.removeExtra(it, m, extra);
+                }
+                if (extra == before) continue;
+                res.removedLimited.merge(k, before - extra, Integer::sum);
+                ender.setItem(i, enderItems[i]);
+            }
+        }
+    }
+
+    private int removeExtraFromContainers(int group, Material type, String key, int extra) {
+        ItemStack[] arr = groups[group];
+        for (int i = arr.length - 1; i >= 0 && extra > 0; i--) {
+            int slot = slotOf(group, i);
+            ContainerScanner.Contents c = contents[slot];
+            if (c == null || arr[i] == null || c.amountOf(type) == 0) continue;
+
+            int left = nested.removeExtra(arr[i], type, extra);
+            if (left == extra) continue;
+            res.removedLimited.merge(key, extra - left, Integer::sum);
+            modified |= 1L << slot;
+            extra = left;
+        }
+        return extra;
+    }
+
+    int removeExtraFromArray(int group, Material type, String key, int extra) {
+        ItemStack[] arr = groups[group];
+        for (int i = arr.length - 1; i >= 0; i--) {
+            ItemStack it = arr[i];
+            if (it == null || it.getType() != type) continue;
+
+            int take = Math.min(extra, it.getAmount());
+            it.setAmount(it.getAmount() - take);
+            res.removedLimited.merge(key, take, Integer::sum);
+            extra -= take;
+            modified |= 1L << slotOf(group, i);
+
+            if (it.getAmount() <= 0) arr[i] = null;
+            if (extra <= 0) break;
+        }
+        return extra;
+    }
+
+    void writeBack(PlayerInventory inv) {
+        if (modified == 0) return;
+        for (int g = 0; g < groups.length; g++) {
+            ItemStack[] arr = groups[g];
+            for (int i = 0; i < arr.length; i++) {
+                int slot = slotOf(g, i);
+                if ((modified & (1L << slot)) != 0) inv.setItem(slot, arr[i]);
+            }
+        }
+    }
+
+    private void recordShadow(PlayerInventoryState state) {
+        if (contents == null) {
+            // nothing was read; what is recorded may be outdated by the time scanning is back on
+            state.containers.markStale(-1L);
+        } else {
+            state.containers.clear();
+        }
+        for (int g = 0; g < groups.length; g++) {
+            ItemStack[] arr = groups[g];
+            for (int i = 0; i < arr.length; i++) {
+                ItemStack it = arr[i];
+                if (it == null || it.getType().isAir()) continue;
+                int slot = slotOf(g, i);
+                state.put(slot, it.getType(), it.getAmount());
+                // after trimming the cached contents may be stale; re-read them for the shadow
+                ContainerScanner.Contents c = contents == null ? null : contents[slot];
+                if (c != null) {
+                    if ((modified & (1L << slot)) != 0) c = nested.contents(it);
+                    state.putNested(c.types(), c.amounts());
+                    state.containers.put(slot, it.getType(), c);
+                }
+            }
+        }
+    }
+
+    private static int slotOf(int group, int index) {
+        return switch (group) {
+            case 0 -> index;
+            case 1 -> ARMOR_FIRST_SLOT + index;
+            default -> OFFHAND_SLOT;
+        };
+    }
+}
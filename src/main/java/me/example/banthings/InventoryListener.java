@@ -0,0 +1,190 @@
+package me.example.banthings;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Inventory events that mark players for a re-check. Only registered while
+ * some item is banned or limited, so servers that just ban effects pay
+ * nothing for clicks and pickups.
+ * <p>
+ * Clicks also flag the cursor, and the ender chest while it is open, so their
+ * cached limit totals are refreshed; opening and closing the ender chest
+ * does the same.
+ * <p>
+ * Masks also tell which stacks may have been changed in place. Containers in
+ * other slots keep the contents read for them before, so a shift-click or a
+ * pickup doesn't unpack every shulker box the player carries.
+ */
+final class InventoryListener implements Listener {
+
+    private final Enforcement enforcement;
+    private final Metrics metrics;
+
+    InventoryListener(Enforcement enforcement, Metrics metrics) {
+        this.enforcement = enforcement;
+        this.metrics = metrics;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPickup(EntityPickupItemEvent e) {
+        long start = Metrics.start();
+        if (e.getEntity() instanceof Player p) {
+            // the stack goes into free or matching slots; a container may take a slot another one had
+            enforcement.enforceSlotsSoon(p, isContainer(e.getItem().getItemStack())
+                    ? PlayerInventoryState.ALL_SLOTS : PlayerInventoryState.FULL_PASS);
+        }
+        metrics.record(Metrics.Probe.PICKUP, start);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onClick(InventoryClickEvent e) {
+        long start = Metrics.start();
+        if (e.getWhoClicked() instanceof Player p) enforcement.outsideChanged(p, affectedSlots(e), enderSlots(e));
+        metrics.record(Metrics.Probe.CLICK, start);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDrag(InventoryDragEvent e) {
+        long start = Metrics.start();
+        if (e.getWhoClicked() instanceof Player p) enforcement.outsideChanged(p, affectedSlots(e), enderSlots(e));
+        metrics.record(Metrics.Probe.DRAG, start);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSwapHands(PlayerSwapHandItemsEvent e) {
+        long start = Metrics.start();
+        Player p = e.getPlayer();
+        enforcement.enforceSlotsSoon(p, slotBit(p.getInventory().getHeldItemSlot()) | slotBit(InventoryEnforcer.OFFHAND_SLOT));
+        metrics.record(Metrics.Probe.SWAP_HANDS, start);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onOpen(InventoryOpenEvent e) {
+        // other plugins may have changed it while it was closed
+        if (e.getPlayer() instanceof Player p && isEnderChest(e.getView())) enforcement.outsideChanged(p, 0, -1L);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onClose(InventoryCloseEvent e) {
+        if (!(e.getPlayer() instanceof Player p)) return;
+        ItemStack cursor = e.getView().getCursor();
+        boolean carried = cursor != null && !cursor.getType().isAir();
+        boolean ender = isEnderChest(e.getView());
+        // a carried stack goes back into some free slot, or is dropped
+        if (carried || ender) {
+            long slots = !carried ? 0 : isContainer(cursor) ? PlayerInventoryState.ALL_SLOTS : PlayerInventoryState.FULL_PASS;
+            enforcement.outsideChanged(p, slots, ender ? PlayerInventoryState.FULL_PASS : 0);
+        }
+    }
+
+    private static boolean isEnderChest(InventoryView view) {
+        return view.getTopInventory().getType() == InventoryType.ENDER_CHEST;
+    }
+
+    private static boolean isContainer(ItemStack it) {
+        return it != null && ContainerScanner.isContainer(it.getType());
+    }
+
+    // ----------------------------
+    // Slot masks
+    // ----------------------------
+
+    /**
+     * PlayerInventory slots a click may have changed, with FULL_PASS when items
+     * may also have gone into other slots, or ALL_SLOTS when that can't be told
+     * from the event.
+     */
+    private static long affectedSlots(InventoryClickEvent e) {
+        switch (e.getAction()) {
+            case NOTHING:
+                return 0;
+            case MOVE_TO_OTHER_INVENTORY:
+                // a moved container can land in a free slot another one had
+                if (isContainer(e.getCurrentItem())) return PlayerInventoryState.ALL_SLOTS;
+                return PlayerInventoryState.FULL_PASS | clickedSlot(e);
+            case COLLECT_TO_CURSOR:
+                return PlayerInventoryState.FULL_PASS | clickedSlot(e);
+            case HOTBAR_MOVE_AND_READD:
+            case UNKNOWN:
+                return PlayerInventoryState.ALL_SLOTS;
+            default:
+                break;
+        }
+        if (e.getClick() == ClickType.CREATIVE) return PlayerInventoryState.ALL_SLOTS;
+
+        long mask = clickedSlot(e);
+        if (e.getClick() == ClickType.NUMBER_KEY) {
+            mask |= slotBit(e.getHotbarButton());
+        }
+        if (e.getClick() == ClickType.SWAP_OFFHAND) {
+            mask |= slotBit(InventoryEnforcer.OFFHAND_SLOT);
+        }
+        return mask;
+    }
+
+    private static long clickedSlot(InventoryClickEvent e) {
+        // raw slots past the top inventory belong to the player's own inventory
+        return e.getRawSlot() >= e.getView().getTopInventory().getSize() ? slotBit(e.getSlot()) : 0;
+    }
+
+    /**
+     * Ender chest slots a click may have changed in place, with FULL_PASS to
+     * recount it; 0 unless the ender chest is open.
+     */
+    private static long enderSlots(InventoryClickEvent e) {
+        InventoryView view = e.getView();
+        if (!isEnderChest(view)) return 0;
+        switch (e.getAction()) {
+            case MOVE_TO_OTHER_INVENTORY:
+                if (isContainer(e.getCurrentItem())) return -1L;
+                break;
+            case HOTBAR_MOVE_AND_READD:
+            case UNKNOWN:
+                return -1L;
+            default:
+                break;
+        }
+        if (e.getClick() == ClickType.CREATIVE) return -1L;
+        int raw = e.getRawSlot();
+        return PlayerInventoryState.FULL_PASS | (raw >= 0 && raw < view.getTopInventory().getSize() ? 1L << raw : 0);
+    }
+
+    private static long enderSlots(InventoryDragEvent e) {
+        InventoryView view = e.getView();
+        if (!isEnderChest(view)) return 0;
+        int topSize = view.getTopInventory().getSize();
+        long mask = PlayerInventoryState.FULL_PASS;
+        for (int raw : e.getRawSlots()) {
+            if (raw < topSize) mask |= 1L << raw;
+        }
+        return mask;
+    }
+
+    private static long affectedSlots(InventoryDragEvent e) {
+        InventoryView view = e.getView();
+        int topSize = view.getTopInventory().getSize();
+        long mask = 0;
+        for (int raw : e.getRawSlots()) {
+            if (raw >= topSize) mask |= slotBit(view.convertSlot(raw));
+        }
+        return mask;
+    }
+
+    private static long slotBit(int slot) {
+        if (slot < 0 || slot >= PlayerInventoryState.SLOT_COUNT) return PlayerInventoryState.ALL_SLOTS;
+        return 1L << slot;
+    }
+}
@@ -0,0 +1,127 @@
+package me.example.banthings;
+
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.meta.EnchantmentStorageMeta;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataContainer;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * One entry of {@code item-rules}: bans items of a material only when their
+ * components match. Every condition given must hold: minimum enchantment
+ * levels (an enchanted book's stored enchantments count), custom model data,
+ * a substring of the custom name, and persistent data keys.
+ * <p>
+ * Matchers are grouped by material in {@link ItemRuleTable}, so only stacks
+ * of a material that has matchers ever get their meta read.
+ */
+final class ItemMatcher {
+
+    final Material material;
+    private final Map<Enchantment, Integer> minEnchants;
+    // -1 when not part of the rule
+    private final int customModelData;
+    // lowercase, null when not part of the rule
+    private final String nameContains;
+    private final List<NamespacedKey> pdcKeys;
+
+    private ItemMatcher(Material material, Map<Enchantment, Integer> minEnchants, int customModelData,
+                        String nameContains, List<NamespacedKey> pdcKeys) {
+        this.material = material;
+        this.minEnchants = minEnchants;
+        this.customModelData = customModelData;
+        this.nameContains = nameContains;
+        this.pdcKeys = pdcKeys;
+    }
+
+    /** Parses one item-rules entry; logs and returns null if it is invalid. */
+    static ItemMatcher parse(Map<?, ?> raw, Logger log) {
+        Object mat = raw.get("material");
+        Material material = mat == null ? null : Material.matchMaterial(String.valueOf(mat));
+        if (material == null || material.isAir()) {
+            log.warning("item-rules: unknown material " + mat + ", rule skipped");
+            return null;
+        }
+
+        Map<Enchantment, Integer> enchants = new LinkedHashMap<>();
+        if (raw.get("enchantments") instanceof Map<?, ?> ench) {
+            for (Map.Entry<?, ?> e : ench.entrySet()) {
+                NamespacedKey key = NamespacedKey.fromString(String.valueOf(e.getKey()).toLowerCase(Locale.ROOT));
+                Enchantment enchantment = key == null ? null : Registry.ENCHANTMENT.get(key);
+                if (enchantment == null || !(e.getValue() instanceof Number level)) {
+                    log.warning("item-rules: bad enchantment " + e.getKey() + ": " + e.getValue() + ", rule skipped");
+                    return null;
+                }
+                enchants.put(enchantment, level.intValue());
+            }
+        }
+
+        int cmd = -1;
+        if (raw.get("custom-model-data") instanceof Number n) cmd = n.intValue();
+
+        String name = null;
+        if (raw.get("name-contains") != null) name = String.valueOf(raw.get("name-contains")).toLowerCase(Locale.ROOT);
+
+        List<NamespacedKey> keys = new ArrayList<>();
+        if (raw.get("pdc-keys") instanceof List<?> list) {
+            for (Object o : list) {
+                NamespacedKey key = NamespacedKey.fromString(String.valueOf(o).toLowerCase(Locale.ROOT));
+                if (key == null) {
+                    log.warning("item-rules: bad pdc key " + o + ", rule skipped");
+                    return null;
+                }
+                keys.add(key);
+            }
+        }
+
+        if (enchants.isEmpty() && cmd < 0 && name == null && keys.isEmpty()) {
+            log.warning("item-rules: rule for " + material.getKey() + " has no conditions, use banned-items instead");
+            return null;
+        }
+        return new ItemMatcher(material, Map.copyOf(enchants), cmd, name, List.copyOf(keys));
+    }
+
+    boolean matches(ItemMeta meta) {
+        for (Map.Entry<Enchantment, Integer> e : minEnchants.entrySet()) {
+            if (enchantLevel(meta, e.getKey()) < e.getValue()) return false;
+        }
+        if (customModelData >= 0 && (!meta.hasCustomModelData() || meta.getCustomModelData() != customModelData)) {
+            return false;
+        }
+        if (nameContains != null) {
+            if (!meta.hasDisplayName()) return false;
+            String plain = PlainTextComponentSerializer.plainText().serialize(meta.displayName());
+            if (!plain.toLowerCase(Locale.ROOT).contains(nameContains)) return false;
+        }
+        if (!pdcKeys.isEmpty()) {
+            PersistentDataContainer pdc = meta.getPersistentDataContainer();
+            for (NamespacedKey k : pdcKeys) {
+                if (!pdc.has(k)) return false;
+            }
+        }
+        return true;
+    }
+
+    private static int enchantLevel(ItemMeta meta, Enchantment e) {
+        int level = meta.getEnchantLevel(e);
+        // books carry what they would apply as stored enchantments
+        if (meta instanceof EnchantmentStorageMeta book) level = Math.max(level, book.getStoredEnchantLevel(e));
+        return level;
+    }
+
+    /** Short text for /banlist, e.g. {@code minecraft:netherite_sword [minecraft:sharpness>=6]}. */
+    String describe() {
+        List<String> parts = new ArrayList<>();
+        minEnchants.forEach((e, lvl) -> parts.add(e.getKey() + ">=" + lvl));
+        if (customModelData >= 0) parts.add("cmd=" + customModelData);
+        if (nameContains != null) parts.add("name~" + nameContains);
+        for (NamespacedKey k : pdcKeys) parts.add("pdc:" + k);
+        return BanThingsPlugin.keyOf(material) + " " + parts;
+    }
+}
@@ -0,0 +1,132 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.*;
+
+/**
+ * Item rules compiled into Material-ordinal indexed arrays, so per-slot checks
+ * are plain array reads without building key strings.
+ * <p>
+ * Component rules ({@link ItemMatcher}) hang off the same ordinal index: a
+ * stack whose material has none is rejected by one array read, and the item
+ * meta is only read for materials that do.
+ */
+final class ItemRuleTable {
+
+    static final int UNLIMITED = -1;
+
+    private static final Material[] MATERIALS = Material.values();
+
+    static final ItemRuleTable EMPTY = new ItemRuleTable(new BitSet(), new int[0], new Material[0], List.of());
+
+    private final BitSet banned;
+    // ordinal -> limit, UNLIMITED if the material has no limit
+    private final int[] limits;
+    // ordinal -> position in limited, -1 if the material has no limit
+    private final int[] limitIndex;
+    private final Material[] limited;
+    // ordinal -> component rules for that material, null if there are none
+    private final ItemMatcher[][] matchers;
+    private final List<ItemMatcher> matcherList;
+
+    private ItemRuleTable(BitSet banned, int[] limitByOrdinal, Material[] limited, List<ItemMatcher> matcherList) {
+        this.banned = banned;
+        this.limited = limited;
+        this.matcherList = List.copyOf(matcherList);
+        this.matchers = new ItemMatcher[MATERIALS.length][];
+        for (ItemMatcher m : this.matcherList) {
+            ItemMatcher[] chain = matchers[m.material.ordinal()];
+            chain = chain == null ? new ItemMatcher[1] : Arrays.copyOf(chain, chain.length + 1);
+            chain[chain.length - 1] = m;
+            matchers[m.material.ordinal()] = chain;
+        }
+        this.limits = new int[MATERIALS.length];
+        this.limitIndex = new int[MATERIALS.length];
+        Arrays.fill(limits, UNLIMITED);
+        Arrays.fill(limitIndex, -1);
+        for (int i = 0; i < limited.length; i++) {
+            int ord = limited[i].ordinal();
+            limits[ord] = limitByOrdinal[i];
+            limitIndex[ord] = i;
+        }
+    }
+
+    static ItemRuleTable compile(Collection<String> bannedKeys, Map<String, Integer> limitKeys) {
+        return compile(bannedKeys, limitKeys, List.of());
+    }
+
+    static ItemRuleTable compile(Collection<String> bannedKeys, Map<String, Integer> limitKeys, List<ItemMatcher> itemRules) {
+        BitSet banned = new BitSet(MATERIALS.length);
+        for (String k : bannedKeys) {
+            Material m = Material.matchMaterial(k);
+            if (m != null) banned.set(m.ordinal());
+        }
+
+        List<Material> limited = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : limitKeys.entrySet()) {
+            Material m = Material.matchMaterial(e.getKey());
+            if (m == null || e.getValue() == null || e.getValue() < 0 || limited.contains(m)) continue;
+            limited.add(m);
+            values.add(e.getValue());
+        }
+
+        int[] limitValues = new int[limited.size()];
+        for (int i = 0; i < limitValues.length; i++) limitValues[i] = values.get(i);
+        return new ItemRuleTable(banned, limitValues, limited.toArray(new Material[0]), itemRules);
+    }
+
+    boolean isBanned(Material m) {
+        return banned.get(m.ordinal());
+    }
+
+    /** The whole material is banned, or one of its component rules matches the stack. */
+    boolean isBanned(ItemStack it) {
+        Material m = it.getType();
+        if (banned.get(m.ordinal())) return true;
+        ItemMatcher[] chain = matchers[m.ordinal()];
+        if (chain == null || !it.hasItemMeta()) return false;
+        ItemMeta meta = it.getItemMeta();
+        for (ItemMatcher matcher : chain) {
+            if (matcher.matches(meta)) return true;
+        }
+        return false;
+    }
+
+    /** True if some stacks of the material may be banned by a component rule. */
+    boolean hasItemRules(Material m) {
+        return matchers[m.ordinal()] != null;
+    }
+
+    List<ItemMatcher> itemRules() {
+        return matcherList;
+    }
+
+    boolean hasBans() {
+        return !banned.isEmpty() || !matcherList.isEmpty();
+    }
+
+    int limit(Material m) {
+        return limits[m.ordinal()];
+    }
+
+    /** Dense index of a limited material, or -1 if the material has no limit. */
+    int limitIndex(Material m) {
+        return limitIndex[m.ordinal()];
+    }
+
+    int limitedCount() {
+        return limited.length;
+    }
+
+    Material limited(int index) {
+        return limited[index];
+    }
+
+    boolean hasLimits() {
+        return limited.length > 0;
+    }
+}
@@ -0,0 +1,106 @@
+package me.example.banthings;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Checks joining players one pass each (inventory and effects together),
+ * queued and drained under a per-tick time budget, so a join storm after a
+ * restart is spread over several ticks instead of landing in one. On Folia
+ * the budget is applied through {@link TickBudget}, from how long the checks
+ * took on the region threads.
+ * <p>
+ * Until a player's check has run they can't open containers or drop items,
+ * so the wait can't be used to hand banned items to someone else.
+ * <p>
+ * Registered while any rule exists; the drain timer keeps running so players
+ * queued before an unregister are still released.
+ */
+final class JoinQueue implements Listener {
+
+    private final BanThingsPlugin plugin;
+    private final Metrics metrics;
+    private final TickBudget budget;
+    private volatile long budgetNanos;
+    private volatile boolean guard;
+
+    private final ConcurrentLinkedQueue<UUID> queue = new ConcurrentLinkedQueue<>();
+    // queued or handed to their region thread, not checked yet
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+
+    private Scheduling.Task task;
+
+    JoinQueue(BanThingsPlugin plugin, Metrics metrics) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.budget = new TickBudget(plugin.scheduling());
+    }
+
+    void configure(long budgetNanos, boolean guard) {
+        this.budgetNanos = budgetNanos;
+        this.guard = guard;
+    }
+
+    void start() {
+        task = plugin.scheduling().runTimer(this::tick, 1L, 1L);
+    }
+
+    void cancel() {
+        if (task == null) return;
+        task.cancel();
+        task = null;
+    }
+
+    void forget(UUID id) {
+        pending.remove(id);
+    }
+
+    private void tick() {
+        if (queue.isEmpty()) return;
+        int quota = budget.open(budgetNanos);
+        UUID id;
+        // at least one player per tick on Paper, however small the budget
+        while (quota-- > 0 && (id = queue.poll()) != null) {
+            Player p = Bukkit.getPlayer(id);
+            if (p == null) {
+                pending.remove(id);
+            } else {
+                UUID checked = id;
+                budget.execute(p, () -> {
+                    long t = Metrics.start();
+                    plugin.joinCheck(p);
+                    metrics.record(Metrics.Probe.JOIN, t);
+                    pending.remove(checked);
+                }, () -> pending.remove(checked));
+            }
+            if (budget.spent(budgetNanos)) break;
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent e) {
+        UUID id = e.getPlayer().getUniqueId();
+        if (pending.add(id)) queue.add(id);
+    }
+
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onOpen(InventoryOpenEvent e) {
+        if (guard && pending.contains(e.getPlayer().getUniqueId())) e.setCancelled(true);
+    }
+
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onDrop(PlayerDropItemEvent e) {
+        if (guard && pending.contains(e.getPlayer().getUniqueId())) e.setCancelled(true);
+    }
+}
@@ -0,0 +1,87 @@
+package me.example.banthings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Sorted, immutable set of namespaced keys with binary-search prefix lookup.
+ * <p>
+ * Keys are indexed twice: by the full key ({@code minecraft:diamond}) and by
+ * the path alone ({@code diamond}), so a prefix without a namespace still
+ * finds them. Completions are always returned as full keys.
+ */
+final class KeyIndex {
+
+    static final KeyIndex EMPTY = of(List.of());
+
+    private final String[] keys;
+    // paths sorted on their own, with the full key each one came from
+    private final String[] paths;
+    private final String[] pathKeys;
+    private final List<String> view;
+
+    private KeyIndex(String[] keys) {
+        this.keys = keys;
+        this.view = List.of(keys);
+
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> path(keys[a]).compareTo(path(keys[b])));
+
+        paths = new String[keys.length];
+        pathKeys = new String[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            pathKeys[i] = keys[order[i]];
+            paths[i] = path(pathKeys[i]);
+        }
+    }
+
+    static KeyIndex of(Collection<String> keys) {
+        String[] sorted = keys.stream().distinct().sorted().toArray(String[]::new);
+        return new KeyIndex(sorted);
+    }
+
+    private static String path(String key) {
+        int colon = key.indexOf(':');
+        return colon < 0 ? key : key.substring(colon + 1);
+    }
+
+    /** All keys in sorted order. */
+    List<String> keys() {
+        return view;
+    }
+
+    boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /**
+     * Up to {@code limit} keys matching the lowercase prefix. Without a colon
+     * the prefix is matched against paths first, then against full keys.
+     */
+    List<String> complete(String prefix, int limit) {
+        List<String> out = new ArrayList<>();
+        if (prefix.indexOf(':') < 0) collect(paths, pathKeys, prefix, limit, out);
+        collect(keys, keys, prefix, limit, out);
+        return out;
+    }
+
+    private static void collect(String[] sorted, String[] results, String prefix, int limit, List<String> out) {
+        for (int i = lowerBound(sorted, prefix); i < sorted.length && out.size() < limit; i++) {
+            if (!sorted[i].startsWith(prefix)) break;
+            if (!out.contains(results[i])) out.add(results[i]);
+        }
+    }
+
+    private static int lowerBound(String[] sorted, String key) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid].compareTo(key) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
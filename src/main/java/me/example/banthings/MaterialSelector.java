@@ -0,0 +1,91 @@
+package me.example.banthings;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Turns command arguments into materials. An argument is one of:
+ * <ul>
+ *   <li>an item id, with or without {@code minecraft:};</li>
+ *   <li>a wildcard pattern such as {@code *_spawn_egg} ({@code *} and {@code ?});
+ *       without a namespace it is matched against the id path;</li>
+ *   <li>an item tag such as {@code #minecraft:logs}.</li>
+ * </ul>
+ * Only materials that exist as items are selected; block-only ones such as
+ * {@code wall_torch} or {@code potted_*} can never be in an inventory.
+ * Wildcards and tags are expanded once and cached, since both walk every
+ * material or tag entry.
+ */
+final class MaterialSelector {
+
+    private final Map<String, List<Material>> expanded = new ConcurrentHashMap<>();
+    private volatile KeyIndex tagKeys;
+
+    /** Materials the argument selects, or an empty list if it selects nothing. */
+    List<Material> resolve(String arg) {
+        String s = arg.trim().toLowerCase(Locale.ROOT);
+        if (s.isEmpty()) return List.of();
+        if (s.startsWith("#") || s.indexOf('*') >= 0 || s.indexOf('?') >= 0) {
+            return expanded.computeIfAbsent(s, MaterialSelector::expand);
+        }
+        Material m = Material.matchMaterial(s);
+        return (m == null || m.isAir() || !m.isItem()) ? List.of() : List.of(m);
+    }
+
+    private static List<Material> expand(String s) {
+        List<Material> out = new ArrayList<>();
+        if (s.startsWith("#")) {
+            NamespacedKey key = NamespacedKey.fromString(s.substring(1));
+            Tag<Material> tag = key == null ? null : Bukkit.getTag(Tag.REGISTRY_ITEMS, key, Material.class);
+            if (tag == null) return List.of();
+            for (Material m : tag.getValues()) {
+                if (!m.isAir() && m.isItem()) out.add(m);
+            }
+        } else {
+            boolean withNamespace = s.indexOf(':') >= 0;
+            Pattern glob = Pattern.compile(glob(s));
+            for (Material m : Material.values()) {
+                if (m.isLegacy() || m.isAir() || !m.isItem()) continue;
+                String k = BanThingsPlugin.keyOf(m);
+                if (glob.matcher(withNamespace ? k : k.substring(k.indexOf(':') + 1)).matches()) out.add(m);
+            }
+        }
+        out.sort(Comparator.comparing(Enum::name));
+        return List.copyOf(out);
+    }
+
+    private static String glob(String s) {
+        StringBuilder re = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '*') re.append(".*");
+            else if (c == '?') re.append('.');
+            else re.append(Pattern.quote(String.valueOf(c)));
+        }
+        return re.toString();
+    }
+
+    /** Item tag keys for tab completion, without the leading '#'. */
+    KeyIndex tagKeys() {
+        KeyIndex idx = tagKeys;
+        if (idx == null) {
+            List<String> keys = new ArrayList<>();
+            for (Tag<Material> t : Bukkit.getTags(Tag.REGISTRY_ITEMS, Material.class)) keys.add(t.getKey().toString());
+            idx = KeyIndex.of(keys);
+            tagKeys = idx;
+        }
+        return idx;
+    }
+
+    /** Drops cached expansions, e.g. after data packs changed the tags. */
+    void clear() {
+        expanded.clear();
+        tagKeys = null;
+    }
+}
@@ -0,0 +1,66 @@
+package me.example.banthings;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A legacy-formatted message ("&c... %item% ...") parsed once into styled text
+ * runs with placeholder slots. Rendering only fills the slots, nothing is parsed
+ * per message.
+ */
+final class MessageTemplate {
+
+    // placeholders are swapped for private-use chars so they survive legacy parsing
+    private static final char SLOT_BASE = '\uE000';
+
+    private record Part(String text, int slot, Style style) {
+    }
+
+    private final Part[] parts;
+
+    private MessageTemplate(Part[] parts) {
+        this.parts = parts;
+    }
+
+    static MessageTemplate compile(LegacyComponentSerializer legacy, String raw, String... placeholders) {
+        String marked = raw;
+        for (int i = 0; i < placeholders.length; i++) {
+            marked = marked.replace("%" + placeholders[i] + "%", String.valueOf((char) (SLOT_BASE + i)));
+        }
+        List<Part> parts = new ArrayList<>();
+        flatten(legacy.deserialize(marked), Style.empty(), placeholders.length, parts);
+        return new MessageTemplate(parts.toArray(new Part[0]));
+    }
+
+    private static void flatten(Component c, Style parent, int slots, List<Part> out) {
+        Style style = parent.merge(c.style());
+        if (c instanceof TextComponent t) {
+            String s = t.content();
+            int start = 0;
+            for (int i = 0; i < s.length(); i++) {
+                int slot = s.charAt(i) - SLOT_BASE;
+                if (slot < 0 || slot >= slots) continue;
+                if (i > start) out.add(new Part(s.substring(start, i), -1, style));
+                out.add(new Part(null, slot, style));
+                start = i + 1;
+            }
+            if (start < s.length()) out.add(new Part(s.substring(start), -1, style));
+        }
+        for (Component child : c.children()) flatten(child, style, slots, out);
+    }
+
+    /** Values are given in the order of the placeholders passed to {@link #compile}. */
+    Component render(String... values) {
+        TextComponent.Builder b = Component.text();
+        for (Part part : parts) {
+            String text = part.slot() < 0 ? part.text() : values[part.slot()];
+            b.append(Component.text(text, part.style()));
+        }
+        return b.build();
+    }
+}
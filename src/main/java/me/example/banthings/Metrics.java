@@ -0,0 +1,227 @@
+package me.example.banthings;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for event handlers and enforcement passes.
+ * <p>
+ * Everything is recorded through {@link LongAdder}s, which stripe updates
+ * across cells, so recording from several region threads on Folia doesn't
+ * contend on a single cache line. Histograms use power-of-two nanosecond
+ * buckets; percentiles are reported as the upper bound of their bucket.
+ * <p>
+ * {@link #reset()} is not atomic with respect to concurrent recording: a
+ * sample landing mid-reset may be partly kept, which is fine for statistics.
+ */
+final class Metrics {
+
+    enum Probe {
+        CLICK("onClick"),
+        DRAG("onDrag"),
+        PICKUP("onPickup"),
+        SWAP_HANDS("onSwapHands"),
+        JOIN("join check"),
+        POTION_CHANGE("onPotionChange"),
+        POTION_BLOCK("onPotionBlock"),
+        FULL_SCAN("full scan"),
+        DELTA_SCAN("delta scan"),
+        EFFECT_CHECK("effect check");
+
+        final String label;
+
+        Probe(String label) {
+            this.label = label;
+        }
+    }
+
+    // bucket i holds samples below 2^i ns; the last one also takes everything slower (~2 s and up)
+    private static final int BUCKETS = 32;
+
+    private static final class Timer {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+        final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        Timer() {
+            for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+        }
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos))].increment();
+        }
+
+        /** Upper bound of the bucket holding the given quantile, or 0 without samples. */
+        long percentile(double q) {
+            long[] snapshot = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets[i].sum();
+                n += snapshot[i];
+            }
+            if (n == 0) return 0;
+
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) return Math.min(1L << i, maxNanos.get());
+            }
+            return maxNanos.get();
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for (LongAdder b : buckets) b.reset();
+        }
+    }
+
+    private final Map<Probe, Timer> timers = new EnumMap<>(Probe.class);
+    private final LongAdder slotsExamined = new LongAdder();
+    private final LongAdder itemsRemoved = new LongAdder();
+    private final LongAdder effectsCleared = new LongAdder();
+    private final LongAdder effectsBlocked = new LongAdder();
+    private final LongAdder blockedAtSource = new LongAdder();
+    private final LongAdder swept = new LongAdder();
+    private final LongAdder sweepFound = new LongAdder();
+    private final LongAdder scansCoalesced = new LongAdder();
+    // delta scans given up for a full pass; neither their time nor their slots are recorded
+    private final LongAdder deltaFallbacks = new LongAdder();
+    private volatile long since = System.currentTimeMillis();
+
+    Metrics() {
+        for (Probe p : Probe.values()) timers.put(p, new Timer());
+    }
+
+    static long start() {
+        return System.nanoTime();
+    }
+
+    void record(Probe probe, long startNanos) {
+        timers.get(probe).record(System.nanoTime() - startNanos);
+    }
+
+    void slotsExamined(int slots) {
+        slotsExamined.add(slots);
+    }
+
+    void removed(EnforceResult r) {
+        long n = 0;
+        for (int amount : r.removedBanned.values()) n += amount;
+        for (int amount : r.removedLimited.values()) n += amount;
+        if (n > 0) itemsRemoved.add(n);
+    }
+
+    void effectCleared() {
+        effectsCleared.increment();
+    }
+
+    void effectBlocked() {
+        effectsBlocked.increment();
+    }
+
+    void blockedAtSource() {
+        blockedAtSource.increment();
+    }
+
+    void swept(boolean found) {
+        swept.increment();
+        if (found) sweepFound.increment();
+    }
+
+    void coalesced() {
+        scansCoalesced.increment();
+    }
+
+    void deltaFallback() {
+        deltaFallbacks.increment();
+    }
+
+    void reset() {
+        for (Timer t : timers.values()) t.reset();
+        slotsExamined.reset();
+        itemsRemoved.reset();
+        effectsCleared.reset();
+        effectsBlocked.reset();
+        blockedAtSource.reset();
+        swept.reset();
+        sweepFound.reset();
+        scansCoalesced.reset();
+        deltaFallbacks.reset();
+        since = System.currentTimeMillis();
+    }
+
+    /** Lines for /banthings stats, in the plugin's &-colour format. */
+    List<String> report() {
+        List<String> lines = new ArrayList<>();
+        long seconds = (System.currentTimeMillis() - since) / 1000L;
+        lines.add("&eBanThings &7(за " + seconds + " с):&f");
+        lines.add("  &7- &fПолных проверок инвентаря: &e" + timers.get(Probe.FULL_SCAN).count.sum());
+        lines.add("  &7- &fПроверок по изменённым слотам: &e" + timers.get(Probe.DELTA_SCAN).count.sum()
+                + " &7(переходов к полной: &e" + deltaFallbacks.sum() + "&7)");
+        lines.add("  &7- &fОбъединено повторных проверок: &e" + scansCoalesced.sum());
+        lines.add("  &7- &fПроверено слотов: &e" + slotsExamined.sum());
+        lines.add("  &7- &fУдалено предметов: &e" + itemsRemoved.sum());
+        lines.add("  &7- &fСнято эффектов: &e" + effectsCleared.sum());
+        lines.add("  &7- &fЗаблокировано эффектов: &e" + effectsBlocked.sum());
+        lines.add("  &7- &fОстановлено предметов у источника: &e" + blockedAtSource.sum());
+        lines.add("  &7- &fФоновых проверок: &e" + swept.sum() + " &7(с нарушениями: &e" + sweepFound.sum() + "&7)");
+        lines.add("&eВремя, мкс &7(вызовов / среднее / p50 / p99 / макс / всего мс):&f");
+        for (Probe p : Probe.values()) {
+            Timer t = timers.get(p);
+            long n = t.count.sum();
+            if (n == 0) continue;
+            long total = t.totalNanos.sum();
+            lines.add("  &7- &f" + p.label + ": &e" + n
+                    + " &7/ &e" + micros(total / n)
+                    + " &7/ &e" + micros(t.percentile(0.50))
+                    + " &7/ &e" + micros(t.percentile(0.99))
+                    + " &7/ &e" + micros(t.maxNanos.get())
+                    + " &7/ &e" + String.format(Locale.ROOT, "%.1f", total / 1_000_000.0));
+        }
+        return lines;
+    }
+
+    /** One-line summary for the periodic log. */
+    String summary() {
+        StringBuilder sb = new StringBuilder()
+                .append("full=").append(timers.get(Probe.FULL_SCAN).count.sum())
+                .append(" delta=").append(timers.get(Probe.DELTA_SCAN).count.sum())
+                .append(" deltaFallback=").append(deltaFallbacks.sum())
+                .append(" coalesced=").append(scansCoalesced.sum())
+                .append(" slots=").append(slotsExamined.sum())
+                .append(" removed=").append(itemsRemoved.sum())
+                .append(" effects=").append(effectsCleared.sum())
+                .append(" blocked=").append(effectsBlocked.sum())
+                .append(" source=").append(blockedAtSource.sum())
+                .append(" swept=").append(swept.sum())
+                .append(" sweepFound=").append(sweepFound.sum());
+        for (Probe p : Probe.values()) {
+            Timer t = timers.get(p);
+            long n = t.count.sum();
+            if (n == 0) continue;
+            sb.append(" | ").append(p.label)
+                    .append(" n=").append(n)
+                    .append(" avg=").append(micros(t.totalNanos.sum() / n)).append("us")
+                    .append(" p99=").append(micros(t.percentile(0.99))).append("us")
+                    .append(" max=").append(micros(t.maxNanos.get())).append("us");
+        }
+        return sb.toString();
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+}
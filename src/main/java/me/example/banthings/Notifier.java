@@ -0,0 +1,175 @@
+package me.example.banthings;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Player notifications for removed items and cleared, removed or blocked effects.
+ * <p>
+ * Everything removed in one enforcement pass goes out as a single chat message
+ * and/or action bar. A player is notified at most once per min-interval; what
+ * happens in between is merged and sent when the interval is over.
+ */
+final class Notifier {
+
+    enum NotifyMode { OFF, CHAT, ACTIONBAR, BOTH }
+
+    private static final class Pending {
+        final Map<String, Integer> removedBanned = new LinkedHashMap<>();
+        final Map<String, Integer> removedLimited = new LinkedHashMap<>();
+        final Map<String, Integer> limitValue = new HashMap<>();
+        final Set<String> clearedEffects = new LinkedHashSet<>();
+        final Set<String> removedEffects = new LinkedHashSet<>();
+        final Set<String> blockedEffects = new LinkedHashSet<>();
+        long lastSentNanos;
+        boolean flushScheduled;
+
+        boolean isEmpty() {
+            return removedBanned.isEmpty() && removedLimited.isEmpty()
+                    && clearedEffects.isEmpty() && removedEffects.isEmpty() && blockedEffects.isEmpty();
+        }
+    }
+
+    private final Scheduling scheduling;
+    private final Map<UUID, Pending> pending = new ConcurrentHashMap<>();
+
+    private volatile NotifyMode mode = NotifyMode.CHAT;
+    private volatile long minIntervalNanos;
+    private volatile MessageTemplate removedBanned;
+    private volatile MessageTemplate removedLimited;
+    private volatile MessageTemplate clearedEffects;
+    private volatile MessageTemplate removedEffect;
+    private volatile MessageTemplate blockedEffect;
+
+    Notifier(Scheduling scheduling) {
+        this.scheduling = scheduling;
+    }
+
+    void load(ConfigurationSection config, LegacyComponentSerializer legacy) {
+        String m = config.getString("notify-mode", "CHAT").toUpperCase(Locale.ROOT);
+        try {
+            mode = NotifyMode.valueOf(m);
+        } catch (IllegalArgumentException ignored) {
+            mode = NotifyMode.CHAT;
+        }
+        minIntervalNanos = Math.max(0L, config.getLong("notify-min-interval-ms", 1000L)) * 1_000_000L;
+
+        removedBanned = MessageTemplate.compile(legacy, config.getString("messages.removed-banned-item",
+                "&c[BanThings] &fRemoved banned item: &e%item% &7x%amount%"), "item", "amount");
+        removedLimited = MessageTemplate.compile(legacy, config.getString("messages.removed-limited-item",
+                "&6[BanThings] &fLimit exceeded: &e%item% &7(limit %limit%). Removed: x%amount%"), "item", "amount", "limit");
+        clearedEffects = MessageTemplate.compile(legacy, config.getString("messages.cleared-effects",
+                "&c[BanThings] &fBanned effect received (&e%effect%&f). Cleared all effects."), "effect");
+        removedEffect = MessageTemplate.compile(legacy, config.getString("messages.removed-effect",
+                "&c[BanThings] &fRemoved banned effect: &e%effect%"), "effect");
+        blockedEffect = MessageTemplate.compile(legacy, config.getString("messages.blocked-effect",
+                "&c[BanThings] &fBlocked banned effect: &e%effect%"), "effect");
+    }
+
+    void enforcement(Player p, EnforceResult r) {
+        if (mode == NotifyMode.OFF || !r.hasAnything()) return;
+        Pending pd = pending(p);
+        synchronized (pd) {
+            r.removedBanned.forEach((k, v) -> pd.removedBanned.merge(k, v, Integer::sum));
+            r.removedLimited.forEach((k, v) -> pd.removedLimited.merge(k, v, Integer::sum));
+            pd.limitValue.putAll(r.limitValue);
+        }
+        flushOrDefer(p, pd);
+    }
+
+    void effectCleared(Player p, String effectKey) {
+        effect(p, effectKey, pd -> pd.clearedEffects);
+    }
+
+    void effectRemoved(Player p, String effectKey) {
+        effect(p, effectKey, pd -> pd.removedEffects);
+    }
+
+    void effectBlocked(Player p, String effectKey) {
+        effect(p, effectKey, pd -> pd.blockedEffects);
+    }
+
+    private void effect(Player p, String effectKey, Function<Pending, Set<String>> bucket) {
+        if (mode == NotifyMode.OFF) return;
+        Pending pd = pending(p);
+        synchronized (pd) {
+            bucket.apply(pd).add(effectKey);
+        }
+        flushOrDefer(p, pd);
+    }
+
+    void forget(UUID id) {
+        pending.remove(id);
+    }
+
+    private Pending pending(Player p) {
+        return pending.computeIfAbsent(p.getUniqueId(), id -> new Pending());
+    }
+
+    private void flushOrDefer(Player p, Pending pd) {
+        long waitNanos;
+        synchronized (pd) {
+            if (pd.flushScheduled) return;
+            waitNanos = pd.lastSentNanos + minIntervalNanos - System.nanoTime();
+            if (pd.lastSentNanos != 0 && waitNanos > 0) {
+                pd.flushScheduled = true;
+            } else {
+                waitNanos = 0;
+            }
+        }
+        if (waitNanos == 0) {
+            flush(p, pd);
+        } else {
+            long ticks = Math.max(1L, (waitNanos + 49_999_999L) / 50_000_000L);
+            scheduling.runForLater(p, () -> flush(p, pd), ticks);
+        }
+    }
+
+    private void flush(Player p, Pending pd) {
+        List<Component> lines = new ArrayList<>();
+        synchronized (pd) {
+            pd.flushScheduled = false;
+            if (pd.isEmpty()) return;
+
+            for (Map.Entry<String, Integer> e : pd.removedBanned.entrySet()) {
+                lines.add(removedBanned.render(e.getKey(), String.valueOf(e.getValue())));
+            }
+            for (Map.Entry<String, Integer> e : pd.removedLimited.entrySet()) {
+                int limit = pd.limitValue.getOrDefault(e.getKey(), 0);
+                lines.add(removedLimited.render(e.getKey(), String.valueOf(e.getValue()), String.valueOf(limit)));
+            }
+            for (String effect : pd.clearedEffects) {
+                lines.add(clearedEffects.render(effect));
+            }
+            for (String effect : pd.removedEffects) {
+                lines.add(removedEffect.render(effect));
+            }
+            for (String effect : pd.blockedEffects) {
+                lines.add(blockedEffect.render(effect));
+            }
+            pd.removedBanned.clear();
+            pd.removedLimited.clear();
+            pd.limitValue.clear();
+            pd.clearedEffects.clear();
+            pd.removedEffects.clear();
+            pd.blockedEffects.clear();
+            pd.lastSentNanos = System.nanoTime();
+        }
+        if (!p.isOnline()) return;
+
+        NotifyMode m = mode;
+        if (m == NotifyMode.CHAT || m == NotifyMode.BOTH) {
+            p.sendMessage(Component.join(JoinConfiguration.newlines(), lines));
+        }
+        if (m == NotifyMode.ACTIONBAR || m == NotifyMode.BOTH) {
+            p.sendActionBar(Component.join(JoinConfiguration.separator(Component.text(" ")), lines));
+        }
+    }
+}
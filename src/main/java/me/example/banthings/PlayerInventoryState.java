@@ -0,0 +1,279 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+
+/**
+ * Per-player view of the inventory as it looked after the last enforcement pass.
+ * Lets a click re-check only the slots it touched: the shadow tells us what each
+ * slot held before, so running totals for limited materials can be adjusted by
+ * the difference instead of recounting the whole inventory.
+ * <p>
+ * The shadow also backs a presence bitset of Material ordinals, used to find the
+ * players a new rule can affect. It is a fixed array of one bit per material,
+ * so command threads can read it while the owning thread updates it, and it is
+ * dropped together with the state when the player quits.
+ * <p>
+ * Materials inside carried containers are added to the totals and to a second
+ * presence bitset by the full pass. They stay valid until a container slot
+ * changes, which always triggers a new full pass.
+ * <p>
+ * Limits also count the cursor and the ender chest. Their amounts are cached
+ * here apart from the shadow and only re-read after they were marked changed
+ * (a click, the ender chest opening or closing), so a click in the player's
+ * own inventory never reads the ender chest. Every material the last count saw
+ * there, nested ones included, goes into a third presence bitset; until the
+ * ender chest is counted again after a change it may hold anything.
+ * <p>
+ * What a full pass read from each container, in the inventory and in the ender
+ * chest, is kept in {@link ContainerRecords}. Most full passes come from events
+ * that only move items into free or matching slots (a shift-click, a pickup),
+ * and those leave the containers in other slots as they were, so their
+ * contents are reused instead of unpacked again.
+ */
+final class PlayerInventoryState {
+
+    // PlayerInventory slot indexes 0..40 fit in one long
+    static final int SLOT_COUNT = 41;
+    static final long ALL_SLOTS = (1L << SLOT_COUNT) - 1;
+    /**
+     * Flag bit on a slot mask: every slot needs checking, since items may have
+     * gone into any free or matching slot, but only the stacks in the mask's
+     * slot bits may have been changed in place.
+     */
+    static final long FULL_PASS = 1L << 63;
+
+    final Material[] types = new Material[SLOT_COUNT];
+    final int[] amounts = new int[SLOT_COUNT];
+
+    // totals per ItemRuleTable.limitIndex of the table the shadow was built with
+    int[] totals = new int[0];
+    ItemRuleTable rules;
+
+    private static final int MATERIAL_COUNT = Material.values().length;
+
+    // Material ordinals present anywhere in the shadow
+    private final long[] present = new long[(MATERIAL_COUNT + 63) >>> 6];
+    // Material ordinals found inside containers during the last full pass
+    private final long[] presentNested = new long[present.length];
+    // Material ordinals in the ender chest, containers in it included, as of the last count
+    private final long[] presentEnder = new long[present.length];
+    private volatile boolean known;
+
+    private boolean fullScan = true;
+    private long dirtySlots;
+
+    // ender chest totals per limitIndex of enderRules, including containers inside it
+    private int[] enderTotals = new int[0];
+    private ItemRuleTable enderRules;
+    // read by command threads through mayHold
+    private volatile boolean enderDirty = true;
+    private volatile Material cursorType;
+    private int cursorAmount;
+    private volatile boolean cursorDirty = true;
+
+    final ContainerRecords containers = new ContainerRecords(SLOT_COUNT);
+    final ContainerRecords enderContainers = new ContainerRecords(64);
+
+    /** Full pass that reads every container again, for changes no event described. */
+    void markFull() {
+        markSlots(ALL_SLOTS);
+    }
+
+    /** Marks slots to re-check; with {@link #FULL_PASS}, or all slots, the next pass is a full one. */
+    void markSlots(long mask) {
+        containers.markStale(mask & ALL_SLOTS);
+        if ((mask & FULL_PASS) != 0 || (mask & ALL_SLOTS) == ALL_SLOTS) {
+            fullScan = true;
+            dirtySlots = 0;
+        } else if (!fullScan) {
+            dirtySlots |= mask & ALL_SLOTS;
+        }
+    }
+
+    boolean needsFullScan(ItemRuleTable current) {
+        return fullScan || rules != current;
+    }
+
+    /** Returns the pending slot mask and resets pending work. */
+    long takeDirtySlots() {
+        long mask = dirtySlots;
+        dirtySlots = 0;
+        fullScan = false;
+        return mask;
+    }
+
+    /**
+     * True if the player may carry the material; players not scanned yet count
+     * as carrying anything. With {@code outside}, the cursor and the ender chest
+     * count too, and either may hold anything while it waits to be re-read.
+     */
+    boolean mayHold(Material m, boolean outside) {
+        int ord = m.ordinal();
+        long bit = 1L << ord;
+        if (!known || (present[ord >>> 6] & bit) != 0 || (presentNested[ord >>> 6] & bit) != 0) return true;
+        if (!outside) return false;
+        return cursorDirty || enderDirty || cursorType == m || (presentEnder[ord >>> 6] & bit) != 0;
+    }
+
+    void reset(ItemRuleTable current) {
+        rules = current;
+        known = true;
+        Arrays.fill(present, 0L);
+        Arrays.fill(presentNested, 0L);
+        if (totals.length != current.limitedCount()) {
+            totals = new int[current.limitedCount()];
+        } else {
+            Arrays.fill(totals, 0);
+        }
+        Arrays.fill(types, null);
+        Arrays.fill(amounts, 0);
+        fullScan = false;
+        dirtySlots = 0;
+    }
+
+    /** Replaces the shadow of one slot and adjusts the running totals. Returns the new total, or -1. */
+    int put(int slot, Material type, int amount) {
+        Material old = types[slot];
+        if (old != null) {
+            int idx = rules.limitIndex(old);
+            if (idx >= 0) totals[idx] -= amounts[slot];
+        }
+        types[slot] = type;
+        amounts[slot] = type == null ? 0 : amount;
+        if (old != null && old != type && !holdsElsewhere(old, slot)) {
+            present[old.ordinal() >>> 6] &= ~(1L << old.ordinal());
+        }
+        if (type == null) return -1;
+        present[type.ordinal() >>> 6] |= 1L << type.ordinal();
+
+        int idx = rules.limitIndex(type);
+        if (idx < 0) return -1;
+        totals[idx] += amount;
+        return totals[idx];
+    }
+
+    /** Adds the contents of a container held in some slot to the totals. */
+    void putNested(Material[] nestedTypes, int[] nestedAmounts) {
+        for (int i = 0; i < nestedTypes.length; i++) {
+            Material m = nestedTypes[i];
+            presentNested[m.ordinal() >>> 6] |= 1L << m.ordinal();
+            int idx = rules.limitIndex(m);
+            if (idx >= 0) totals[idx] += nestedAmounts[i];
+        }
+    }
+
+    // ----------------------------
+    // Cursor and ender chest
+    // ----------------------------
+
+    /**
+     * The cursor changed. A non-zero {@code enderSlots} recounts the ender
+     * chest too; its slot bits are the slots that may have changed in place.
+     */
+    void markOutside(long enderSlots) {
+        cursorDirty = true;
+        if (enderSlots == 0) return;
+        enderDirty = true;
+        enderContainers.markStale(enderSlots & ~FULL_PASS);
+    }
+
+    boolean takeCursorDirty() {
+        boolean d = cursorDirty;
+        cursorDirty = false;
+        return d;
+    }
+
+    void setCursor(Material type, int amount) {
+        cursorType = type;
+        cursorAmount = type == null ? 0 : amount;
+    }
+
+    boolean needsEnderCount(ItemRuleTable current) {
+        return enderDirty || enderRules != current;
+    }
+
+    /** Starts a new ender chest count; {@link #enderHolds} then adds what it finds. */
+    void clearEnderPresence() {
+        Arrays.fill(presentEnder, 0L);
+    }
+
+    void enderHolds(Material m) {
+        presentEnder[m.ordinal() >>> 6] |= 1L << m.ordinal();
+    }
+
+    void setEnderTotals(ItemRuleTable current, int[] counts) {
+        enderRules = current;
+        enderTotals = counts;
+        enderDirty = false;
+    }
+
+    /** Amount of a limited material on the cursor and in the ender chest, as of the last refresh. */
+    int outside(ItemRuleTable current, int idx) {
+        int n = (enderRules == current && idx < enderTotals.length) ? enderTotals[idx] : 0;
+        if (cursorType != null && current.limitIndex(cursorType) == idx) n += cursorAmount;
+        return n;
+    }
+
+    /** True if some limited material is over its limit counting the shadow, cursor and ender chest. */
+    boolean overLimit(ItemRuleTable current) {
+        if (rules != current || totals.length != current.limitedCount()) return true;
+        for (int idx = 0; idx < totals.length; idx++) {
+            if (totals[idx] + outside(current, idx) > current.limit(current.limited(idx))) return true;
+        }
+        return false;
+    }
+
+    // ----------------------------
+    // Container contents
+    // ----------------------------
+
+    /**
+     * Contents read from the containers in a row of slots (up to 64), kept
+     * until the slot is marked as changed in place. A record is only reused
+     * for a container of the same type.
+     */
+    static final class ContainerRecords {
+
+        private final ContainerScanner.Contents[] contents;
+        private final Material[] types;
+        // slots whose container may have changed since it was read
+        private long stale = -1L;
+
+        ContainerRecords(int size) {
+            contents = new ContainerScanner.Contents[size];
+            types = new Material[size];
+        }
+
+        /** Contents recorded for a container of this type in the slot, or null if it must be read. */
+        ContainerScanner.Contents get(int slot, Material type) {
+            if (slot >= contents.length || (stale & (1L << slot)) != 0 || types[slot] != type) return null;
+            return contents[slot];
+        }
+
+        void put(int slot, Material type, ContainerScanner.Contents c) {
+            if (slot >= contents.length) return;
+            types[slot] = type;
+            contents[slot] = c;
+        }
+
+        void markStale(long mask) {
+            stale |= mask;
+        }
+
+        /** Drops every record; the caller puts back the containers it just read. */
+        void clear() {
+            Arrays.fill(contents, null);
+            Arrays.fill(types, null);
+            stale = 0;
+        }
+    }
+
+    private boolean holdsElsewhere(Material m, int exceptSlot) {
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            if (i != exceptSlot && types[i] == m) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,137 @@
+package me.example.banthings;
+
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Re-checks a list of players after a rule change, a few per tick, so a large
+ * server doesn't take the whole sweep in one tick. Each tick processes players
+ * until the configured nanosecond budget is spent (at least one player per tick).
+ * <p>
+ * On Folia the job only hands players to their region threads, as many per
+ * tick as {@link TickBudget} allows; it finishes once every handed-out check
+ * has run or its player has left.
+ * <p>
+ * The ticks run on the global thread, while a newer rule change may cancel
+ * the job from a command thread. Whichever of them takes the timer first
+ * stops the job; the other sees it gone.
+ */
+final class ReenforceJob {
+
+    interface Check {
+        /** Re-checks one player; true if anything was removed or cleared. */
+        boolean run(Player p, boolean items, boolean effects);
+    }
+
+    private final Scheduling scheduling;
+    // online player by id, null once they left
+    private final Function<UUID, Player> lookup;
+    private final Check check;
+    // progress and the final summary, to whoever started the job
+    private final Consumer<String> reporter;
+    private final Logger logger;
+    private final List<UUID> players;
+    private final boolean items;
+    private final boolean effects;
+    private final long budgetNanos;
+    private final long progressIntervalTicks;
+    private final TickBudget budget;
+
+    private final AtomicReference<Scheduling.Task> task = new AtomicReference<>();
+    private int next;
+    private long ticks;
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger violations = new AtomicInteger();
+
+    ReenforceJob(Scheduling scheduling, Function<UUID, Player> lookup, Check check,
+                 Consumer<String> reporter, Logger logger, List<UUID> players, boolean items, boolean effects,
+                 long budgetNanos, long progressIntervalTicks) {
+        this.scheduling = scheduling;
+        this.lookup = lookup;
+        this.check = check;
+        this.reporter = reporter;
+        this.logger = logger;
+        this.players = players;
+        this.items = items;
+        this.effects = effects;
+        this.budgetNanos = budgetNanos;
+        this.progressIntervalTicks = progressIntervalTicks;
+        this.budget = new TickBudget(scheduling);
+    }
+
+    void start() {
+        task.set(scheduling.runTimer(this::tick, 1L, 1L));
+    }
+
+    /** Stops the job; returns false if it had already finished or been cancelled. */
+    boolean cancel() {
+        Scheduling.Task t = task.getAndSet(null);
+        if (t == null) return false;
+        t.cancel();
+        return true;
+    }
+
+    boolean items() {
+        return items;
+    }
+
+    boolean effects() {
+        return effects;
+    }
+
+    List<UUID> players() {
+        return players;
+    }
+
+    private void tick() {
+        // a cancelled timer may still be mid-run on Folia
+        if (task.get() == null) return;
+        ticks++;
+        int quota = budget.open(budgetNanos);
+        while (quota-- > 0 && next < players.size()) {
+            Player p = lookup.apply(players.get(next++));
+            if (p == null) {
+                done.incrementAndGet();
+            } else {
+                budget.execute(p, () -> checkOne(p), done::incrementAndGet);
+            }
+            if (budget.spent(budgetNanos)) break;
+        }
+
+        if (done.get() >= players.size()) {
+            finish();
+        } else if (progressIntervalTicks > 0 && ticks % progressIntervalTicks == 0) {
+            report("&7Перепроверка игроков: &e" + done.get() + "&7/&e" + players.size());
+        }
+    }
+
+    private void checkOne(Player p) {
+        try {
+            if (check.run(p, items, effects)) violations.incrementAndGet();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Re-check failed for " + p.getName(), e);
+        } finally {
+            // counted either way, or the job would never finish
+            done.incrementAndGet();
+        }
+    }
+
+    private void finish() {
+        // lost the race to a cancel: the job was restarted, not finished
+        if (!cancel()) return;
+        report("&aПерепроверка завершена: &e" + players.size() + " &aигроков за &e" + ticks
+                + " &aтиков, нарушений: &e" + violations.get());
+    }
+
+    void report(String raw) {
+        reporter.accept(raw);
+    }
+}
@@ -0,0 +1,199 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Immutable set of rules together with the compiled item table.
+ * <p>
+ * Changes never modify a snapshot; they build a new one, which the plugin swaps
+ * in atomically. Readers on any thread always see one complete rule set.
+ */
+final class RuleSnapshot {
+
+    static final RuleSnapshot EMPTY = new RuleSnapshot(Set.of(), Map.of(), Set.of(), List.of());
+
+    private final Set<String> bannedItems;
+    private final Map<String, Integer> itemLimits;
+    private final Set<String> bannedEffects;
+    // item-rules from config.yml; only changed by editing the file
+    private final List<ItemMatcher> itemRules;
+    private final ItemRuleTable items;
+    // banned effects resolved to their types, for hash lookups straight from the event
+    private final Set<PotionEffectType> bannedEffectTypes;
+
+    // sorted views for list commands and tab completion
+    private final KeyIndex bannedItemKeys;
+    private final KeyIndex limitedItemKeys;
+    private final KeyIndex bannedEffectKeys;
+
+    private RuleSnapshot(Set<String> bannedItems, Map<String, Integer> itemLimits, Set<String> bannedEffects,
+                         List<ItemMatcher> itemRules) {
+        this.bannedItems = Set.copyOf(bannedItems);
+        this.itemLimits = Map.copyOf(itemLimits);
+        this.bannedEffects = Set.copyOf(bannedEffects);
+        this.itemRules = List.copyOf(itemRules);
+        this.items = ItemRuleTable.compile(this.bannedItems, this.itemLimits, this.itemRules);
+        this.bannedEffectTypes = resolveEffects(this.bannedEffects);
+        this.bannedItemKeys = KeyIndex.of(this.bannedItems);
+        this.limitedItemKeys = KeyIndex.of(this.itemLimits.keySet());
+        this.bannedEffectKeys = KeyIndex.of(this.bannedEffects);
+    }
+
+    private static Set<PotionEffectType> resolveEffects(Set<String> keys) {
+        if (keys.isEmpty()) return Set.of();
+        Set<PotionEffectType> types = new HashSet<>();
+        for (String k : keys) {
+            NamespacedKey key = NamespacedKey.fromString(k);
+            PotionEffectType t = (key == null) ? null : PotionEffectType.getByKey(key);
+            if (t != null) types.add(t);
+        }
+        return Set.copyOf(types);
+    }
+
+    static RuleSnapshot fromConfig(ConfigurationSection config, Logger log) {
+        Set<String> banned = new HashSet<>();
+        for (String s : config.getStringList("banned-items")) banned.add(s.toLowerCase(Locale.ROOT));
+
+        Set<String> effects = new HashSet<>();
+        for (String s : config.getStringList("banned-effects")) effects.add(s.toLowerCase(Locale.ROOT));
+
+        Map<String, Integer> limits = new HashMap<>();
+        ConfigurationSection sec = config.getConfigurationSection("item-limits");
+        if (sec != null) {
+            for (String key : sec.getKeys(false)) {
+                int v = sec.getInt(key, -1);
+                if (v >= 0) limits.put(key.toLowerCase(Locale.ROOT), v);
+            }
+        }
+        List<ItemMatcher> itemRules = new ArrayList<>();
+        for (Map<?, ?> raw : config.getMapList("item-rules")) {
+            ItemMatcher m = ItemMatcher.parse(raw, log);
+            if (m != null) itemRules.add(m);
+        }
+        return new RuleSnapshot(banned, limits, effects, itemRules);
+    }
+
+    Set<String> bannedItems() {
+        return bannedItems;
+    }
+
+    Map<String, Integer> itemLimits() {
+        return itemLimits;
+    }
+
+    Set<String> bannedEffects() {
+        return bannedEffects;
+    }
+
+    ItemRuleTable items() {
+        return items;
+    }
+
+    boolean isEffectBanned(PotionEffectType type) {
+        return bannedEffectTypes.contains(type);
+    }
+
+    KeyIndex bannedItemKeys() {
+        return bannedItemKeys;
+    }
+
+    KeyIndex limitedItemKeys() {
+        return limitedItemKeys;
+    }
+
+    KeyIndex bannedEffectKeys() {
+        return bannedEffectKeys;
+    }
+
+    RuleSnapshot withBannedItems(Collection<String> keys) {
+        if (bannedItems.containsAll(keys)) return this;
+        Set<String> s = new HashSet<>(bannedItems);
+        s.addAll(keys);
+        return new RuleSnapshot(s, itemLimits, bannedEffects, itemRules);
+    }
+
+    RuleSnapshot withoutBannedItems(Collection<String> keys) {
+        Set<String> s = new HashSet<>(bannedItems);
+        if (!s.removeAll(keys)) return this;
+        return new RuleSnapshot(s, itemLimits, bannedEffects, itemRules);
+    }
+
+    RuleSnapshot withLimits(Collection<String> keys, int limit) {
+        Map<String, Integer> m = new HashMap<>(itemLimits);
+        boolean changed = false;
+        for (String k : keys) {
+            if (!Objects.equals(m.put(k, limit), limit)) changed = true;
+        }
+        return changed ? new RuleSnapshot(bannedItems, m, bannedEffects, itemRules) : this;
+    }
+
+    RuleSnapshot withoutLimits(Collection<String> keys) {
+        Map<String, Integer> m = new HashMap<>(itemLimits);
+        if (!m.keySet().removeAll(keys)) return this;
+        return new RuleSnapshot(bannedItems, m, bannedEffects, itemRules);
+    }
+
+    RuleSnapshot withBannedEffect(String key) {
+        if (bannedEffects.contains(key)) return this;
+        Set<String> s = new HashSet<>(bannedEffects);
+        s.add(key);
+        return new RuleSnapshot(bannedItems, itemLimits, s, itemRules);
+    }
+
+    RuleSnapshot withoutBannedEffect(String key) {
+        if (!bannedEffects.contains(key)) return this;
+        Set<String> s = new HashSet<>(bannedEffects);
+        s.remove(key);
+        return new RuleSnapshot(bannedItems, itemLimits, s, itemRules);
+    }
+
+    // ----------------------------
+    // Diff against an older snapshot
+    // ----------------------------
+
+    /**
+     * Materials that this snapshot treats more strictly than {@code previous}:
+     * newly banned, newly limited or given a lower limit, or covered by a new
+     * item rule. Only players holding these need a re-check; loosened rules
+     * can't produce violations.
+     */
+    Set<Material> tightenedSince(RuleSnapshot previous) {
+        Set<Material> out = new LinkedHashSet<>();
+        for (String k : bannedItems) {
+            if (!previous.bannedItems.contains(k)) addMaterial(out, k);
+        }
+        for (Map.Entry<String, Integer> e : itemLimits.entrySet()) {
+            Integer old = previous.itemLimits.get(e.getKey());
+            if (old == null || e.getValue() < old) addMaterial(out, e.getKey());
+        }
+        Set<String> oldRules = new HashSet<>();
+        for (ItemMatcher m : previous.itemRules) oldRules.add(m.describe());
+        for (ItemMatcher m : itemRules) {
+            if (!oldRules.contains(m.describe())) out.add(m.material);
+        }
+        return out;
+    }
+
+    private static void addMaterial(Set<Material> out, String key) {
+        Material m = Material.matchMaterial(key);
+        if (m != null) out.add(m);
+    }
+
+    /** True if some effect is banned here that wasn't in {@code previous}. */
+    boolean bansEffectsSince(RuleSnapshot previous) {
+        return !previous.bannedEffects.containsAll(bannedEffects);
+    }
+
+    /** Sorted copy of the rules in the shape config.yml stores them. */
+    ConfigWriter.Rules toPersisted() {
+        Map<String, Integer> limits = new LinkedHashMap<>();
+        for (String k : limitedItemKeys.keys()) limits.put(k, itemLimits.get(k));
+        return new ConfigWriter.Rules(bannedItemKeys.keys(), limits, bannedEffectKeys.keys());
+    }
+}
@@ -0,0 +1,116 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.logging.Logger;
+
+/**
+ * What a rule command does after parsing: store the new snapshot, then
+ * re-check the online players it can affect with a {@link ReenforceJob}.
+ * <p>
+ * Only one job runs at a time. A rule change that lands while one is still
+ * going cancels it and starts over with both target lists, so every player
+ * is checked against the newest rules. Reloads go through the same job.
+ */
+final class RuleUpdates {
+
+    private final AtomicReference<RuleSnapshot> rules;
+    // runs after every update: persistence and listener registration
+    private final Runnable changed;
+    private final Scheduling scheduling;
+    private final Enforcement enforcement;
+    private final Function<UUID, Player> lookup;
+    private final Supplier<? extends Collection<? extends Player>> online;
+    // true if the player had a banned effect removed or cleared
+    private final Predicate<Player> effectCheck;
+    private final Logger logger;
+
+    private volatile long budgetNanos;
+    private volatile long progressTicks;
+    private ReenforceJob job;
+
+    RuleUpdates(AtomicReference<RuleSnapshot> rules, Runnable changed, Scheduling scheduling,
+                Enforcement enforcement, Function<UUID, Player> lookup,
+                Supplier<? extends Collection<? extends Player>> online,
+                Predicate<Player> effectCheck, Logger logger) {
+        this.rules = rules;
+        this.changed = changed;
+        this.scheduling = scheduling;
+        this.enforcement = enforcement;
+        this.lookup = lookup;
+        this.online = online;
+        this.effectCheck = effectCheck;
+        this.logger = logger;
+    }
+
+    void configure(long budgetNanos, long progressTicks) {
+        this.budgetNanos = budgetNanos;
+        this.progressTicks = progressTicks;
+    }
+
+    RuleSnapshot update(UnaryOperator<RuleSnapshot> change) {
+        RuleSnapshot updated = rules.updateAndGet(change);
+        changed.run();
+        return updated;
+    }
+
+    // ----------------------------
+    // Re-enforcement
+    // ----------------------------
+
+    /** Re-checks the inventories of players who may hold any of the materials. */
+    void reenforceHolding(Consumer<String> reporter, Collection<Material> ms) {
+        reenforce(reporter, enforcement.playersHolding(online.get(), ms), true, false);
+    }
+
+    /** Re-checks every online player. */
+    void reenforceOnline(Consumer<String> reporter, boolean items, boolean effects) {
+        List<UUID> ids = new ArrayList<>();
+        for (Player p : online.get()) ids.add(p.getUniqueId());
+        reenforce(reporter, ids, items, effects);
+    }
+
+    private synchronized void reenforce(Consumer<String> reporter, Collection<UUID> targets, boolean items, boolean effects) {
+        Set<UUID> players = new LinkedHashSet<>();
+        ReenforceJob old = job;
+        if (old != null && old.cancel()) {
+            // rules changed again mid-sweep: start over so every target is checked against the new rules
+            players.addAll(old.players());
+            items |= old.items();
+            effects |= old.effects();
+            old.report("&7Правила изменились, перепроверка начата заново.");
+        }
+        players.addAll(targets);
+
+        job = new ReenforceJob(scheduling, lookup, this::reenforcePlayer, reporter, logger,
+                new ArrayList<>(players), items, effects, budgetNanos, progressTicks);
+        job.start();
+    }
+
+    /**
+     * Full re-check of one player after a rule change; returns true if anything
+     * was removed or cleared. Container contents recorded earlier are reused.
+     */
+    boolean reenforcePlayer(Player p, boolean items, boolean effects) {
+        boolean found = items && enforcement.recheck(p, PlayerInventoryState.FULL_PASS);
+        if (effects && effectCheck.test(p)) found = true;
+        return found;
+    }
+
+    synchronized void cancel() {
+        if (job != null) job.cancel();
+    }
+}
@@ -0,0 +1,106 @@
+package me.example.banthings;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Picks the scheduler for the server we run on.
+ * <p>
+ * On Paper everything stays on the main thread through the Bukkit scheduler. On
+ * Folia there is no main thread: player work goes to the player's entity
+ * scheduler, so it runs on the region thread that owns the player, and global
+ * timers go to the global region scheduler.
+ * <p>
+ * Not final, so a simulation can put its own tick loop behind the same calls;
+ * code that branches on the server type asks {@link #folia()}.
+ */
+class Scheduling {
+
+    interface Task {
+        void cancel();
+    }
+
+    private static final boolean FOLIA = detectFolia();
+
+    private final Plugin plugin;
+
+    Scheduling(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /** True when player work runs on region threads rather than one main thread. */
+    boolean folia() {
+        return FOLIA;
+    }
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /** Repeating task that does not touch any player directly. */
+    Task runTimer(Runnable task, long delayTicks, long periodTicks) {
+        if (FOLIA) {
+            ScheduledTask t = Bukkit.getGlobalRegionScheduler()
+                    .runAtFixedRate(plugin, st -> task.run(), Math.max(1L, delayTicks), periodTicks);
+            return t::cancel;
+        }
+        BukkitTask t = Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+        return t::cancel;
+    }
+
+    /** Runs the task off the server threads, for file IO and parsing. */
+    void runAsync(Runnable task) {
+        if (FOLIA) {
+            Bukkit.getAsyncScheduler().runNow(plugin, st -> task.run());
+        } else {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+        }
+    }
+
+    /** Runs the task on the next tick, on the main thread or Folia's global region. */
+    void runGlobal(Runnable task) {
+        if (FOLIA) {
+            Bukkit.getGlobalRegionScheduler().run(plugin, st -> task.run());
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /** Runs the task on the next tick, on the thread that owns the player. */
+    void runFor(Player p, Runnable task) {
+        if (FOLIA) {
+            p.getScheduler().run(plugin, st -> task.run(), null);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+
+    void runForLater(Player p, Runnable task, long delayTicks) {
+        if (FOLIA) {
+            p.getScheduler().runDelayed(plugin, st -> task.run(), null, Math.max(1L, delayTicks));
+        } else {
+            Bukkit.getScheduler().runTaskLater(plugin, task, delayTicks);
+        }
+    }
+
+    /**
+     * Runs the task right away if the current thread owns the player, otherwise
+     * hands it to the owning thread. {@code retired} runs instead if the player
+     * is gone before that happens.
+     */
+    void executeFor(Player p, Runnable task, Runnable retired) {
+        if (Bukkit.isOwnedByCurrentRegion(p)) {
+            task.run();
+        } else if (!p.getScheduler().execute(plugin, task, retired, 1L)) {
+            retired.run();
+        }
+    }
+}
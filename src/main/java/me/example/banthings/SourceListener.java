@@ -0,0 +1,91 @@
+package me.example.banthings;
+
+import org.bukkit.Material;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockDispenseEvent;
+import org.bukkit.event.entity.ItemSpawnEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.function.Supplier;
+
+/**
+ * Stops banned items before they reach a player: hopper moves, item entities
+ * spawning on the ground and dispenser output are cancelled.
+ * <p>
+ * These events fire constantly on farm-heavy servers, so each handler tests
+ * the material's bits first and reads the item meta only for the few
+ * materials that have component rules. While nothing is banned the item is
+ * not read at all. Hopper and dispenser events only hand out a copy of the
+ * stack, so that one copy is the floor there; the dropped item entity gives
+ * its stack without copying.
+ * <p>
+ * Only registered when at least one source is enabled in the config, and
+ * only while some item is banned.
+ */
+final class SourceListener implements Listener {
+
+    private final Supplier<RuleSnapshot> rules;
+    private final Metrics metrics;
+    private final boolean hoppers;
+    private final boolean itemSpawns;
+    private final boolean dispensers;
+
+    SourceListener(Supplier<RuleSnapshot> rules, Metrics metrics, boolean hoppers, boolean itemSpawns, boolean dispensers) {
+        this.rules = rules;
+        this.metrics = metrics;
+        this.hoppers = hoppers;
+        this.itemSpawns = itemSpawns;
+        this.dispensers = dispensers;
+    }
+
+    boolean anyEnabled() {
+        return hoppers || itemSpawns || dispensers;
+    }
+
+    // checked before any item getter is called
+    private ItemRuleTable bans() {
+        ItemRuleTable table = rules.get().items();
+        return table.hasBans() ? table : null;
+    }
+
+    private static boolean banned(ItemRuleTable table, ItemStack it) {
+        if (it == null) return false;
+        Material m = it.getType();
+        if (table.isBanned(m)) return true;
+        // the meta is a copy as well, so only read it when a component rule needs it
+        return table.hasItemRules(m) && table.isBanned(it);
+    }
+
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onMoveItem(InventoryMoveItemEvent e) {
+        if (!hoppers) return;
+        ItemRuleTable table = bans();
+        if (table != null && banned(table, e.getItem())) {
+            e.setCancelled(true);
+            metrics.blockedAtSource();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onItemSpawn(ItemSpawnEvent e) {
+        if (!itemSpawns) return;
+        ItemRuleTable table = bans();
+        if (table != null && banned(table, e.getEntity().getItemStack())) {
+            e.setCancelled(true);
+            metrics.blockedAtSource();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onDispense(BlockDispenseEvent e) {
+        if (!dispensers) return;
+        ItemRuleTable table = bans();
+        if (table != null && banned(table, e.getItem())) {
+            e.setCancelled(true);
+            metrics.blockedAtSource();
+        }
+    }
+}
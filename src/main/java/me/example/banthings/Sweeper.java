@@ -0,0 +1,105 @@
+package me.example.banthings;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Safety net for inventory changes no listened event reports (plugins calling
+ * setItem, /give, crafting results, respawn): online players are fully
+ * re-checked in rotation, a few per tick, so everyone is covered once per
+ * period.
+ * <p>
+ * The rate adapts. Finding violations doubles the speed, up to
+ * {@link #MAX_SPEEDUP} times, and each round without any halves it again.
+ * When the average tick time goes above the configured MSPT, the rate is
+ * scaled down in proportion. Folia has no such average, so there checks still
+ * waiting on region threads count against the per-tick cap instead.
+ */
+final class Sweeper {
+
+    static final double MAX_SPEEDUP = 4.0;
+
+    private final BanThingsPlugin plugin;
+    private final long periodTicks;
+    private final int maxPerTick;
+    private final double backoffMspt;
+
+    private final ArrayDeque<UUID> round = new ArrayDeque<>();
+    private double perTick;
+    // fractional players carried over between ticks
+    private double credit;
+    private double speedup = 1.0;
+    private boolean roundFound;
+    private boolean msptUnavailable;
+    // violations reported by checks that ran since the last tick, possibly on other threads
+    private final AtomicInteger found = new AtomicInteger();
+    private final TickBudget budget;
+
+    private Scheduling.Task task;
+
+    Sweeper(BanThingsPlugin plugin, long periodTicks, int maxPerTick, double backoffMspt) {
+        this.plugin = plugin;
+        this.periodTicks = Math.max(1L, periodTicks);
+        this.maxPerTick = Math.max(1, maxPerTick);
+        this.backoffMspt = backoffMspt;
+        this.budget = new TickBudget(plugin.scheduling());
+    }
+
+    void start() {
+        task = plugin.scheduling().runTimer(this::tick, 20L, 1L);
+    }
+
+    void cancel() {
+        if (task == null) return;
+        task.cancel();
+        task = null;
+    }
+
+    private void tick() {
+        if (!plugin.hasItemRules()) return;
+
+        if (found.getAndSet(0) > 0) {
+            speedup = Math.min(MAX_SPEEDUP, speedup * 2);
+            roundFound = true;
+        }
+        if (round.isEmpty()) {
+            if (!roundFound) speedup = Math.max(1.0, speedup / 2);
+            roundFound = false;
+            for (Player p : Bukkit.getOnlinePlayers()) round.add(p.getUniqueId());
+            perTick = (double) round.size() / periodTicks;
+            credit = 0;
+        }
+
+        credit += perTick * speedup * loadFactor();
+        // on Paper nothing is left in flight, checks run inline
+        int n = (int) Math.max(0, Math.min(maxPerTick - budget.inFlight(), Math.floor(credit)));
+        // don't save up a burst while capped at maxPerTick
+        credit = Math.min(credit - n, 1.0);
+
+        for (int i = 0; i < n && !round.isEmpty(); i++) {
+            Player p = Bukkit.getPlayer(round.poll());
+            if (p == null) continue;
+            budget.execute(p, () -> {
+                if (plugin.sweepPlayer(p)) found.incrementAndGet();
+            }, () -> { });
+        }
+    }
+
+    /** 1 while the server keeps up, smaller as the average tick time climbs past the threshold. */
+    private double loadFactor() {
+        if (backoffMspt <= 0 || msptUnavailable) return 1.0;
+        double mspt;
+        try {
+            mspt = Bukkit.getAverageTickTime();
+        } catch (UnsupportedOperationException e) {
+            // Folia has no single server tick to average
+            msptUnavailable = true;
+            return 1.0;
+        }
+        return mspt <= backoffMspt ? 1.0 : backoffMspt / mspt;
+    }
+}
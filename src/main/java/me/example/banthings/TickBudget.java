@@ -0,0 +1,73 @@
+package me.example.banthings;
+
+import org.bukkit.entity.Player;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides how many player checks a budgeted tick loop may hand out.
+ * <p>
+ * On Paper the checks run inline, so the loop just stops once the time it
+ * spent passes the budget. On Folia handing a check to its region thread
+ * costs next to nothing and the check runs later, so timing the loop says
+ * nothing. There each check reports its own duration, and a tick releases as
+ * many players as the budget covers at the recent average cost, minus the
+ * checks still waiting on region threads, so a lagging region isn't buried
+ * under more of them.
+ */
+final class TickBudget {
+
+    // assumed cost of one check until real ones have been measured
+    private static final long INITIAL_COST_NANOS = 200_000L;
+
+    private final Scheduling scheduling;
+    private final AtomicLong averageNanos = new AtomicLong(INITIAL_COST_NANOS);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private long tickStart;
+
+    TickBudget(Scheduling scheduling) {
+        this.scheduling = scheduling;
+    }
+
+    /** Starts a tick; returns how many players it may release at most. */
+    int open(long budgetNanos) {
+        tickStart = System.nanoTime();
+        if (!scheduling.folia()) return Integer.MAX_VALUE;
+        long covered = Math.max(1L, budgetNanos / Math.max(1L, averageNanos.get()));
+        return (int) Math.max(0L, Math.min(Integer.MAX_VALUE, covered - inFlight.get()));
+    }
+
+    /** True once the checks run inline this tick have used up the budget; never on Folia. */
+    boolean spent(long budgetNanos) {
+        return !scheduling.folia() && System.nanoTime() - tickStart >= budgetNanos;
+    }
+
+    /** Checks handed out and not finished yet. */
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Runs {@code check} on the thread that owns the player and records how
+     * long it took; {@code retired} runs instead if the player is gone first.
+     */
+    void execute(Player p, Runnable check, Runnable retired) {
+        inFlight.incrementAndGet();
+        scheduling.executeFor(p, () -> {
+            long start = System.nanoTime();
+            try {
+                check.run();
+            } finally {
+                long took = System.nanoTime() - start;
+                // moving average over roughly the last eight checks
+                averageNanos.updateAndGet(avg -> avg + (took - avg) / 8);
+                inFlight.decrementAndGet();
+            }
+        }, () -> {
+            inFlight.decrementAndGet();
+            retired.run();
+        });
+    }
+}